@@ -38,6 +38,33 @@ public class BCConfig implements IModConfigHelper {
     @ModConfigProperty(name = "disableInvasiveConfigGui", category = "Server", comment = "This disables the gui that is shown to clients if a server side config that cant be hot swapped has changed.\nIt is replaced by a chat message that has an option to open the gui")
     public static boolean disableInvasiveGui = false;
 
+    @ModConfigProperty(name = "aggregateTileSync", category = "Server", comment = "When enabled tile data updates are collected at the end of each tick and all updates for tiles in the same chunk are sent as a single packet.\nDisable this if you suspect it is causing sync issues.")
+    public static boolean aggregateTileSync = true;
+
+    @ModConfigProperty(name = "playerBandwidthBudget", category = "Server", comment = "The maximum number of bytes of BrandonsCore network traffic (tile data, tile messages, particles) sent to each player per tick.\nWhen a player exceeds this budget tile data is queued and particles are dropped. Gui data is never delayed.\nSet to 0 to disable (no limit).")
+    public static int playerBandwidthBudget = 0;
+
+    @ModConfigProperty(name = "asyncTileEncoding", category = "Server", comment = "When enabled tile data sync packets are built on a separate thread rather than the server thread.\nThe changed values are serialized on the server thread and the packets are assembled by the encoder thread then sent from the server thread at the start of the next tick.")
+    public static boolean asyncTileEncoding = false;
+
+    @ModConfigProperty(name = "tileMessageRateLimit", category = "Server", comment = "The maximum number of tile messages (gui buttons, sliders etc) each player can send to the server per second.\nMessages over this limit are dropped. Set to 0 to disable.")
+    public static int tileMessageRateLimit = 60;
+
+    @ModConfigProperty(name = "tileMessagePermissionCache", category = "Server", comment = "The number of ticks a player's permission to interact with a tile is cached for when handling tile messages.\nChecking permission fires a right click event which can be expensive with permission mods installed. Set to 0 to disable caching.")
+    public static int tileMessagePermissionCache = 20;
+
+    @ModConfigProperty(name = "tickWatchdogThreshold", category = "Server", comment = "When a server tick takes longer than this many milliseconds the server thread's stack is sampled until the tick ends.\nThe samples are saved as a collapsed stack (flame graph) file in config/brandon3055/tick_spikes. Set to 0 to disable.")
+    public static int tickWatchdogThreshold = 1000;
+
+    @ModConfigProperty(name = "tickWatchdogSampleInterval", category = "Server", comment = "The number of milliseconds between stack samples taken by the tick watchdog.")
+    public static int tickWatchdogSampleInterval = 5;
+
+    @ModConfigProperty(name = "tickWatchdogMaxSpikes", category = "Server", comment = "The number of tick spike files to keep. When a new spike is saved the oldest files over this limit are deleted.")
+    public static int tickWatchdogMaxSpikes = 20;
+
+    @ModConfigProperty(name = "integratedServerLoopback", category = "Misc", comment = "When playing single player (or hosting a LAN world) particle and tick time messages sent to the host player are handed directly to the client\nrather than being encoded and sent through the local network channel.")
+    public static boolean integratedServerLoopback = true;
+
     @ModConfigProperty(name = "devLog", category = "Misc", comment = "Enable DEV log output.")
     public static boolean devLog = false;
 }
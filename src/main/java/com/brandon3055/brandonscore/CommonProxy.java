@@ -5,8 +5,14 @@ import com.brandon3055.brandonscore.handlers.BCEventHandler;
 import com.brandon3055.brandonscore.handlers.IProcess;
 import com.brandon3055.brandonscore.handlers.ProcessHandler;
 import com.brandon3055.brandonscore.integration.ModHelperBC;
+import com.brandon3055.brandonscore.lib.datamanager.SyncEncoder;
+import com.brandon3055.brandonscore.lib.datamanager.TileSyncScheduler;
+import com.brandon3055.brandonscore.network.OutboundPacketScheduler;
 import com.brandon3055.brandonscore.network.ServerPacketHandler;
+import com.brandon3055.brandonscore.network.TileMessageGuard;
 import com.brandon3055.brandonscore.registry.ModFeatureParser;
+import com.brandon3055.brandonscore.utils.ServerProfiler;
+import com.brandon3055.brandonscore.utils.TickWatchdog;
 import net.minecraft.entity.player.EntityPlayer;
 import net.minecraft.server.MinecraftServer;
 import net.minecraft.util.text.ITextComponent;
@@ -23,6 +29,12 @@ public class CommonProxy {
     public void preInit(FMLPreInitializationEvent event) {
         MinecraftForge.EVENT_BUS.register(new BCEventHandler());
         MinecraftForge.EVENT_BUS.register(new ModFeatureParser());
+        MinecraftForge.EVENT_BUS.register(new TileSyncScheduler());
+        MinecraftForge.EVENT_BUS.register(new SyncEncoder());
+        MinecraftForge.EVENT_BUS.register(new OutboundPacketScheduler());
+        MinecraftForge.EVENT_BUS.register(new TileMessageGuard());
+        MinecraftForge.EVENT_BUS.register(new ServerProfiler());
+        MinecraftForge.EVENT_BUS.register(new TickWatchdog());
         ModHelperBC.init();
     }
 
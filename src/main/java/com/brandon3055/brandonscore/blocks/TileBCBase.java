@@ -9,7 +9,10 @@ import com.brandon3055.brandonscore.lib.datamanager.IDataManagerProvider;
 import com.brandon3055.brandonscore.lib.datamanager.IManagedData;
 import com.brandon3055.brandonscore.lib.datamanager.TileDataManager;
 import com.brandon3055.brandonscore.lib.datamanager.TileDataOptions;
+import com.brandon3055.brandonscore.network.OutboundPacketScheduler;
+import com.brandon3055.brandonscore.network.OutboundPacketScheduler.Priority;
 import com.brandon3055.brandonscore.network.PacketDispatcher;
+import com.brandon3055.brandonscore.utils.ServerProfiler;
 import net.minecraft.block.Block;
 import net.minecraft.block.state.IBlockState;
 import net.minecraft.entity.player.EntityPlayer;
@@ -24,11 +27,13 @@ import net.minecraft.util.EnumHand;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.world.World;
 import net.minecraft.world.chunk.Chunk;
+import net.minecraftforge.common.DimensionManager;
 import net.minecraftforge.common.MinecraftForge;
 import net.minecraftforge.event.entity.player.PlayerInteractEvent;
 import net.minecraftforge.fml.common.network.NetworkRegistry;
 
 import javax.annotation.Nullable;
+import java.util.Collections;
 import java.util.function.Consumer;
 
 /**
@@ -38,6 +43,7 @@ import java.util.function.Consumer;
 public class TileBCBase extends TileEntity implements IDataManagerProvider, IDataRetainingTile {
 
     protected boolean shouldRefreshOnState = true;
+    protected boolean saveOnChangeOnly = false;
     protected TileDataManager<TileBCBase> dataManager = new TileDataManager<>(this);
 
     //region Data Manager
@@ -59,7 +65,9 @@ public class TileBCBase extends TileEntity implements IDataManagerProvider, IDat
      */
     public void update() {
         if (!world.isRemote) {
+            long start = ServerProfiler.start();
             dataManager.detectAndSendChanges();
+            ServerProfiler.recordTile(this, start);
         }
     }
 
@@ -84,6 +92,15 @@ public class TileBCBase extends TileEntity implements IDataManagerProvider, IDat
         return compound;
     }
 
+    //The default implementation calls readFromNBT which only reads saved data. The update tag contains the synced data and codec state.
+    @Override
+    public void handleUpdateTag(NBTTagCompound tag) {
+        super.readFromNBT(tag);
+        dataManager.readSyncNBT(tag);
+        readExtraNBT(tag);
+        onTileLoaded();
+    }
+
     @Override
     public void onDataPacket(NetworkManager net, SPacketUpdateTileEntity pkt) {
         dataManager.readSyncNBT(pkt.getNbtCompound());
@@ -123,11 +140,14 @@ public class TileBCBase extends TileEntity implements IDataManagerProvider, IDat
     }
 
     public void sendPacketToClient(EntityPlayerMP player, Consumer<MCDataOutput> writer, int id) {
-        sendPacketToClient(writer, id).sendToPlayer(player);
+        OutboundPacketScheduler.sendTileData(sendPacketToClient(writer, id).toPacket(), player, Priority.GUI, Collections.singletonList(this));
     }
 
     public void sendPacketToClient(NetworkRegistry.TargetPoint tp, Consumer<MCDataOutput> writer, int id) {
-        sendPacketToClient(writer, id).sendPacketToAllAround(tp.x, tp.y, tp.z, tp.range, tp.dimension);
+        World world = DimensionManager.getWorld(tp.dimension);
+        if (world != null) {
+            OutboundPacketScheduler.sendToAllAround(sendPacketToClient(writer, id).toPacket(), world, tp.x, tp.y, tp.z, tp.range, Priority.GUI, null);
+        }
     }
 
     /**
@@ -157,6 +177,16 @@ public class TileBCBase extends TileEntity implements IDataManagerProvider, IDat
         shouldRefreshOnState = false;
     }
 
+    /**
+     * Calling this in the constructor will stop {@link #markDirty()} from flagging the chunk for saving unless data saved by the data manager
+     * has actually changed. Managed data changes flag the chunk automatically so this avoids re saving chunks that have not changed.
+     * Note that if you save anything via writeExtraNBT you must call dataManager.markSaveDirty() when it changes.
+     * The same applies to managed data that is saved but not synced if you modify its value directly rather than via its setter.
+     */
+    public void setSaveOnChangeOnly() {
+        saveOnChangeOnly = true;
+    }
+
     @Deprecated //I want to store everything on the tile in 1.13. I'm done dealing with these bullshit blockstate crashes.
     public IBlockState getState(Block expectedBlock) {
         if (world == null) {
@@ -247,6 +277,20 @@ public class TileBCBase extends TileEntity implements IDataManagerProvider, IDat
         onTileLoaded();
     }
 
+    @Override
+    public void markDirty() {
+        if (saveOnChangeOnly && world != null && !world.isRemote && !dataManager.isSaveDirty()) {
+            //Nothing that is saved has changed so there is no need to flag the chunk. Everything else super.markDirty() does still needs to happen.
+            IBlockState state = world.getBlockState(pos);
+            blockMetadata = state.getBlock().getMetaFromState(state);
+            if (getBlockType() != Blocks.AIR) {
+                world.updateComparatorOutputLevel(pos, getBlockType());
+            }
+            return;
+        }
+        super.markDirty();
+    }
+
     @Override
     public boolean shouldRefresh(World world, BlockPos pos, IBlockState oldState, IBlockState newSate) {
         return shouldRefreshOnState ? oldState != newSate : (oldState.getBlock() != newSate.getBlock());
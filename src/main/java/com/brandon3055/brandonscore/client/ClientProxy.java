@@ -7,6 +7,7 @@ import com.brandon3055.brandonscore.command.BCClientCommands;
 import com.brandon3055.brandonscore.handlers.IProcess;
 import com.brandon3055.brandonscore.lib.DLRSCache;
 import com.brandon3055.brandonscore.network.ClientPacketHandler;
+import com.brandon3055.brandonscore.network.LoopbackTransport;
 import com.brandon3055.brandonscore.registry.ModFeatureParser;
 import com.brandon3055.brandonscore.utils.BCProfiler;
 import com.brandon3055.brandonscore.utils.ModelUtils;
@@ -32,6 +33,7 @@ public class ClientProxy extends CommonProxy {
         BCEffectHandler.iniEffectRenderer();
         ((IReloadableResourceManager) Minecraft.getMinecraft().getResourceManager()).registerReloadListener(new ModelUtils());
         MinecraftForge.EVENT_BUS.register(new BCClientEventHandler());
+        MinecraftForge.EVENT_BUS.register(new LoopbackTransport());
         DLRSCache.initialize();
         ProcessHandlerClient.init();
         BCProfiler.init();
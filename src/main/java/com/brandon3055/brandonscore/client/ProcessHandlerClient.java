@@ -2,6 +2,7 @@ package com.brandon3055.brandonscore.client;
 
 import com.brandon3055.brandonscore.handlers.IProcess;
 import com.brandon3055.brandonscore.utils.BCProfiler;
+import com.brandon3055.brandonscore.utils.BCProfiler.ProfilerKey;
 import net.minecraftforge.common.MinecraftForge;
 import net.minecraftforge.event.world.WorldEvent;
 import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
@@ -23,6 +24,8 @@ import java.util.concurrent.ConcurrentLinkedQueue;
 
 public class ProcessHandlerClient {
 
+    private static final ProfilerKey PROCESS_HANDLER = BCProfiler.key("process_handler");
+
     private static List<IProcess> processes = new ArrayList<IProcess>();
     private static List<IProcess> newProcesses = new ArrayList<IProcess>();
 
@@ -36,7 +39,7 @@ public class ProcessHandlerClient {
     @SubscribeEvent
     public void onClientTick(TickEvent.ClientTickEvent event) {
         if (event.phase == TickEvent.Phase.START) {
-            BCProfiler.TICK.start("process_handler");
+            BCProfiler.TICK.start(PROCESS_HANDLER);
             while (!syncTasks.isEmpty()) {
                 syncTasks.poll().run();
             }
@@ -1,10 +1,12 @@
 package com.brandon3055.brandonscore.client.particle;
 
-import com.brandon3055.brandonscore.BrandonsCore;
 import com.brandon3055.brandonscore.lib.PairKV;
 import com.brandon3055.brandonscore.lib.Vec3D;
+import com.brandon3055.brandonscore.network.OutboundPacketScheduler.Priority;
+import com.brandon3055.brandonscore.network.PacketDispatcher;
 import com.brandon3055.brandonscore.network.PacketSpawnParticle;
 import com.brandon3055.brandonscore.utils.BCProfiler;
+import com.brandon3055.brandonscore.utils.BCProfiler.ProfilerKey;
 import com.brandon3055.brandonscore.utils.LogHelperBC;
 import net.minecraft.client.Minecraft;
 import net.minecraft.client.particle.Particle;
@@ -20,7 +22,6 @@ import net.minecraftforge.common.MinecraftForge;
 import net.minecraftforge.event.world.WorldEvent;
 import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
 import net.minecraftforge.fml.common.gameevent.TickEvent;
-import net.minecraftforge.fml.common.network.NetworkRegistry;
 import net.minecraftforge.fml.relauncher.Side;
 import net.minecraftforge.fml.relauncher.SideOnly;
 
@@ -33,6 +34,8 @@ import java.util.Map;
  */
 public class BCEffectHandler {
     private static BCEffectHandler instance = new BCEffectHandler();
+    private static final ProfilerKey UPDATE_EFFECT_RENDERER = BCProfiler.key("update_bc_effect_renderer");
+    private static final ProfilerKey EFFECT_RENDERER_DRAW = BCProfiler.key("bc_effect_renderer_draw");
     @SideOnly(Side.CLIENT)
     public static BCEffectRenderer effectRenderer;
     public static Map<Integer, PairKV<IBCParticleFactory, ResourceLocation>> particleRegistry = new LinkedHashMap<Integer, PairKV<IBCParticleFactory, ResourceLocation>>();
@@ -112,7 +115,8 @@ public class BCEffectHandler {
 
     public static void spawnFX(int particleID, World world, Vec3D pos, Vec3D speed, double viewRange, int... args) {
         if (!world.isRemote) {
-            BrandonsCore.network.sendToAllAround(new PacketSpawnParticle(particleID, pos.x, pos.y, pos.z, speed.x, speed.y, speed.z, viewRange, args), new NetworkRegistry.TargetPoint(world.provider.getDimension(), pos.x, pos.y, pos.z, viewRange));
+            PacketSpawnParticle message = new PacketSpawnParticle(particleID, pos.x, pos.y, pos.z, speed.x, speed.y, speed.z, viewRange, args);
+            PacketDispatcher.sendToAllAround(message, world, pos.x, pos.y, pos.z, viewRange, Priority.COSMETIC);
         } else {
             if (isInRange(pos.x, pos.y, pos.z, viewRange) && effectRenderer != null) {
 
@@ -226,7 +230,7 @@ public class BCEffectHandler {
         }
 
         if (effectRenderer.world != null) {
-            BCProfiler.TICK.start("update_bc_effect_renderer");
+            BCProfiler.TICK.start(UPDATE_EFFECT_RENDERER);
             Minecraft.getMinecraft().mcProfiler.startSection("BCParticlesUpdate");
             effectRenderer.updateEffects();
             Minecraft.getMinecraft().mcProfiler.endSection();
@@ -242,7 +246,7 @@ public class BCEffectHandler {
     @SideOnly(Side.CLIENT)
     @SubscribeEvent
     public void renderWorld(RenderWorldLastEvent event) {
-        BCProfiler.RENDER.start("bc_effect_renderer_draw");
+        BCProfiler.RENDER.start(EFFECT_RENDERER_DRAW);
         Minecraft.getMinecraft().mcProfiler.startSection("BCParticles");
         effectRenderer.renderParticles(Minecraft.getMinecraft().player, event.getPartialTicks());
         Minecraft.getMinecraft().mcProfiler.endSection();
@@ -3,6 +3,7 @@ package com.brandon3055.brandonscore.client.particle;
 import com.brandon3055.brandonscore.client.ResourceHelperBC;
 import com.brandon3055.brandonscore.lib.PairKV;
 import com.brandon3055.brandonscore.utils.BCProfiler;
+import com.brandon3055.brandonscore.utils.BCProfiler.ProfilerKey;
 import com.brandon3055.brandonscore.utils.DataUtils;
 import net.minecraft.client.Minecraft;
 import net.minecraft.client.particle.Particle;
@@ -28,6 +29,15 @@ import java.util.concurrent.Callable;
  * Custom effect renderer used by all of my mods
  */
 public class BCEffectRenderer {
+    private static final ProfilerKey RENDER_GLFX = BCProfiler.key("render_glfx");
+    private static final ProfilerKey RENDER_PARTICLES = BCProfiler.key("render_particles");
+    private static final ClassValue<ProfilerKey> GLFX_KEYS = new ClassValue<ProfilerKey>() {
+        @Override
+        protected ProfilerKey computeValue(Class<?> type) {
+            return BCProfiler.key("glfx: " + type.getSimpleName());
+        }
+    };
+
     public World world;
 
     //Textured Particle Queue
@@ -239,11 +249,11 @@ public class BCEffectRenderer {
 
         for (int layer = 0; layer < 4; layer++) {
             profiler.startSection("GL_Particles");
-            BCProfiler.RENDER.start("render_glfx");
+            BCProfiler.RENDER.start(RENDER_GLFX);
             renderGlParticlesInLayer(layer, tessellator, entityIn, partialTicks, rotationX, rotationZ, rotationYZ, rotationXY, rotationXZ);
             BCProfiler.RENDER.stop();
             profiler.endStartSection("Tex_Particles");
-            BCProfiler.RENDER.start("render_particles");
+            BCProfiler.RENDER.start(RENDER_PARTICLES);
             renderTexturedParticlesInLayer(layer, tessellator, entityIn, partialTicks, rotationX, rotationZ, rotationYZ, rotationXY, rotationXZ);
             profiler.endSection();
             BCProfiler.RENDER.stop();
@@ -265,7 +275,7 @@ public class BCEffectRenderer {
 
             for (final Particle particle : particles) {
                 try {
-                    BCProfiler.RENDER.start("glfx: " + particle.getClass().getSimpleName());
+                    BCProfiler.RENDER.start(GLFX_KEYS.get(particle.getClass()));
                     particle.renderParticle(vertexbuffer, entityIn, partialTicks, rotationX, rotationXZ, rotationZ, rotationYZ, rotationXY);
                     BCProfiler.RENDER.stop();
                 }
@@ -71,7 +71,7 @@ public class BCClientCommands extends CommandBase {
                 DelayedTask.run(10, () -> Minecraft.getMinecraft().displayGuiScreen(new ModularGuiTest()));
             }
             else if (function.equals("profiler")) {
-                BCProfiler.enableProfiler = !BCProfiler.enableProfiler;
+                profiler(sender, args);
             }
             else if (function.equals("dump_event_listeners")) {
                 BCUtilCommands.dumpEventListeners(sender);
@@ -95,9 +95,60 @@ public class BCClientCommands extends CommandBase {
 
     @Override
     public List<String> getTabCompletions(MinecraftServer server, ICommandSender sender, String[] args, @Nullable BlockPos targetPos) {
+        if (args.length == 2 && args[0].equals("profiler")) {
+            return getListOfStringsMatchingLastWord(args, "second", "minute", "total", "reset", "print", "capture", "trace");
+        }
+        if (args.length == 3 && args[0].equals("profiler") && args[1].equals("trace")) {
+            return getListOfStringsMatchingLastWord(args, "chrome", "speedscope");
+        }
         return getListOfStringsMatchingLastWord(args, "nbt", "profiler", "dump_event_listeners", "set_ui_scale", "clear_fx");
     }
 
+    /**
+     * With no arguments toggles the profiler overlay. second, minute or total selects the window the percentiles are calculated over.
+     * capture toggles trace capture and trace saves the captured trace.
+     */
+    private void profiler(ICommandSender sender, String[] args) {
+        String action = args.length > 1 ? args[1] : "";
+        if (action.equals("reset")) {
+            BCProfiler.reset();
+            ChatHelper.message(sender, "Profiler reset", TextFormatting.GREEN);
+        }
+        else if (action.equals("print")) {
+            ChatHelper.message(sender, "BCore Profiler: calls, p50, p90, p99, p99.9 per call - (" + BCProfiler.window.getName() + ")", TextFormatting.AQUA);
+            BCProfiler.tickDebug.forEach(line -> ChatHelper.message(sender, line));
+            BCProfiler.renderDebug.forEach(line -> ChatHelper.message(sender, line));
+        }
+        else if (action.equals("capture")) {
+            if (BCProfiler.isCapturing()) {
+                BCProfiler.stopCapture();
+                ChatHelper.message(sender, "Trace capture stopped", TextFormatting.GREEN);
+            }
+            else {
+                BCProfiler.startCapture();
+                ChatHelper.message(sender, "Trace capture started. Use /bcore_client profiler trace [chrome|speedscope] to save it", TextFormatting.GREEN);
+            }
+        }
+        else if (action.equals("trace")) {
+            boolean speedscope = args.length > 2 && args[2].equals("speedscope");
+            BCProfiler.exportTrace(speedscope, file -> Minecraft.getMinecraft().addScheduledTask(() -> {
+                if (file == null) {
+                    ChatHelper.message(sender, "Failed to save the trace. See the log for details", TextFormatting.RED);
+                }
+                else {
+                    ChatHelper.message(sender, "Trace saved to " + file.getAbsolutePath(), TextFormatting.GREEN);
+                }
+            }));
+        }
+        else if (action.equals("second") || action.equals("minute") || action.equals("total")) {
+            BCProfiler.window = BCProfiler.Window.valueOf(action.toUpperCase());
+            BCProfiler.enableProfiler = true;
+        }
+        else {
+            BCProfiler.enableProfiler = !BCProfiler.enableProfiler;
+        }
+    }
+
     private void help(ICommandSender sender) {
         ChatHelper.message(sender, "NO!", TextFormatting.RED);
 //        ChatHelper.message(sender, "/bcore_util", TextFormatting.BLUE);
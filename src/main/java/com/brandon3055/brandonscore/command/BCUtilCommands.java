@@ -1,15 +1,21 @@
 package com.brandon3055.brandonscore.command;
 
 import codechicken.lib.reflect.ObfMapping;
+import com.brandon3055.brandonscore.BCConfig;
 import com.brandon3055.brandonscore.handlers.BCEventHandler;
+import com.brandon3055.brandonscore.handlers.FileHandler;
 import com.brandon3055.brandonscore.handlers.HandHelper;
 import com.brandon3055.brandonscore.inventory.ContainerPlayerAccess;
 import com.brandon3055.brandonscore.lib.ChatHelper;
 import com.brandon3055.brandonscore.lib.PairKV;
+import com.brandon3055.brandonscore.network.NetStats;
 import com.brandon3055.brandonscore.network.PacketDispatcher;
 import com.brandon3055.brandonscore.utils.DataUtils;
 import com.brandon3055.brandonscore.utils.InventoryUtils;
 import com.brandon3055.brandonscore.utils.LogHelperBC;
+import com.brandon3055.brandonscore.utils.ServerProfiler;
+import com.brandon3055.brandonscore.utils.TickWatchdog;
+import com.brandon3055.brandonscore.utils.Utils;
 import com.google.common.base.Charsets;
 import com.google.common.collect.Lists;
 import com.mojang.authlib.GameProfile;
@@ -18,6 +24,7 @@ import net.minecraft.command.CommandBase;
 import net.minecraft.command.CommandException;
 import net.minecraft.command.ICommandSender;
 import net.minecraft.command.PlayerNotFoundException;
+import net.minecraft.command.WrongUsageException;
 import net.minecraft.entity.Entity;
 import net.minecraft.entity.EntityList;
 import net.minecraft.entity.player.EntityPlayer;
@@ -56,6 +63,7 @@ import org.apache.commons.io.IOUtils;
 import javax.annotation.Nullable;
 import java.io.*;
 import java.lang.reflect.Method;
+import java.text.SimpleDateFormat;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.zip.GZIPInputStream;
@@ -119,6 +127,15 @@ public class BCUtilCommands extends CommandBase {
             else if (function.equals("eggify")) {
                 eggify(server, sender, args);
             }
+            else if (function.equals("net_stats")) {
+                netStats(sender, args);
+            }
+            else if (function.equals("profile")) {
+                profile(server, sender, args);
+            }
+            else if (function.equals("tick_spikes")) {
+                listTickSpikes(sender);
+            }
             else {
                 help(sender);
             }
@@ -138,7 +155,10 @@ public class BCUtilCommands extends CommandBase {
             list.addAll(Lists.newArrayList(cache.getUsernames()));
             return getListOfStringsMatchingLastWord(args, list);
         }
-        return getListOfStringsMatchingLastWord(args, "nbt", "regenchunk", "noclip", "uuid", "player_access", "dump_event_listeners", "eggify");
+        else if (args.length == 2 && args[0].equals("net_stats")) {
+            return getListOfStringsMatchingLastWord(args, "start", "stop", "reset", "csv");
+        }
+        return getListOfStringsMatchingLastWord(args, "nbt", "regenchunk", "noclip", "uuid", "player_access", "dump_event_listeners", "eggify", "net_stats", "profile", "tick_spikes");
     }
 
     private void help(ICommandSender sender) {
@@ -149,6 +169,12 @@ public class BCUtilCommands extends CommandBase {
         ChatHelper.message(sender, "-Regenerates the chunk(s) at your position.", TextFormatting.GRAY);
         ChatHelper.message(sender, "/bcore_util noclip", TextFormatting.BLUE);
         ChatHelper.message(sender, "-Toggles noclip allowing you to fly through blocks as if in spectator mode... Or fall into the void if you dont have flight", TextFormatting.GRAY);
+        ChatHelper.message(sender, "/bcore_util net_stats [start|stop|reset|csv|count]", TextFormatting.BLUE);
+        ChatHelper.message(sender, "-Records Brandon's Core network traffic. With no arguments (or a number) lists the top packet types, tiles and fields by bytes sent. csv saves everything to the config folder.", TextFormatting.GRAY);
+        ChatHelper.message(sender, "/bcore_util profile <seconds> [count]", TextFormatting.BLUE);
+        ChatHelper.message(sender, "-Profiles Brandon's Core tiles, processes and packet handlers on the server for the given time then lists the tile classes, dimensions and chunks using the most tick time.", TextFormatting.GRAY);
+        ChatHelper.message(sender, "/bcore_util tick_spikes", TextFormatting.BLUE);
+        ChatHelper.message(sender, "-Lists the stack sample (flame graph) files saved by the tick watchdog for recent slow server ticks.", TextFormatting.GRAY);
 //        ChatHelper.message(sender, "/bcore_util", TextFormatting.BLUE);
 //        ChatHelper.message(sender, "-", TextFormatting.GRAY);
 //        ChatHelper.message(sender, "/bcore_util", TextFormatting.BLUE);
@@ -327,6 +353,104 @@ public class BCUtilCommands extends CommandBase {
 
     //endregion
 
+    private void netStats(ICommandSender sender, String[] args) throws CommandException {
+        String action = args.length > 1 ? args[1] : "";
+        if (action.equals("start")) {
+            NetStats.start();
+            ChatHelper.message(sender, "Network stats recording started", TextFormatting.GREEN);
+        }
+        else if (action.equals("stop")) {
+            NetStats.stop();
+            ChatHelper.message(sender, "Network stats recording stopped", TextFormatting.GREEN);
+        }
+        else if (action.equals("reset")) {
+            NetStats.reset();
+            ChatHelper.message(sender, "Network stats reset", TextFormatting.GREEN);
+        }
+        else if (action.equals("csv")) {
+            File folder = new File(FileHandler.brandon3055Folder, "net_stats");
+            if (!folder.exists() && !folder.mkdirs()) {
+                throw new CommandException("Could not create folder " + folder);
+            }
+            File file = new File(folder, "net_stats_" + new SimpleDateFormat("yyyy-MM-dd_HH.mm.ss").format(new Date()) + ".csv");
+            try {
+                NetStats.writeCSV(file);
+            }
+            catch (IOException e) {
+                throw new CommandException("Failed to write " + file + " " + e.getMessage());
+            }
+            ChatHelper.message(sender, "Network stats saved to " + file.getAbsolutePath(), TextFormatting.GREEN);
+        }
+        else {
+            int top = action.isEmpty() ? 10 : parseInt(action, 1);
+            if (!NetStats.isEnabled() && NetStats.getRecordingTime() == 0) {
+                ChatHelper.message(sender, "Network stats are not being recorded. Use /bcore_util net_stats start", TextFormatting.RED);
+                return;
+            }
+            ChatHelper.message(sender, "Network stats for the last " + (NetStats.getRecordingTime() / 1000) + " seconds" + (NetStats.isEnabled() ? "" : " (stopped)"), new Style().setColor(TextFormatting.AQUA).setUnderlined(true));
+            listNetStats(sender, "Packet types (bytes sent)", NetStats.getTable(NetStats.PACKETS), top);
+            listNetStats(sender, "Players (bytes sent)", NetStats.getTable(NetStats.PLAYERS), top);
+            listNetStats(sender, "Tile classes (bytes encoded)", NetStats.getTable(NetStats.TILES), top);
+            listNetStats(sender, "Managed fields (bytes encoded)", NetStats.getTable(NetStats.FIELDS), top);
+        }
+    }
+
+    private void listNetStats(ICommandSender sender, String title, List<NetStats.Entry> entries, int top) {
+        ChatHelper.message(sender, title, TextFormatting.BLUE);
+        for (int i = 0; i < entries.size() && i < top; i++) {
+            NetStats.Entry entry = entries.get(i);
+            ChatHelper.message(sender, "-" + entry.name + ": " + Utils.formatNumber(entry.bytes) + "B, " + Utils.addCommas(entry.count), TextFormatting.GRAY);
+        }
+    }
+
+    private void profile(MinecraftServer server, ICommandSender sender, String[] args) throws CommandException {
+        if (args.length < 2) {
+            throw new WrongUsageException("/bcore_util profile <seconds> [count]");
+        }
+        if (ServerProfiler.isActive()) {
+            throw new CommandException("A profiler run is already in progress");
+        }
+        int seconds = parseInt(args[1], 1, 600);
+        int top = args.length > 2 ? parseInt(args[2], 1) : 10;
+        ChatHelper.message(sender, "Profiling for " + seconds + " seconds...", TextFormatting.GREEN);
+        ServerProfiler.begin(seconds * 20, () -> {
+            int ticks = Math.max(1, ServerProfiler.getTicksRecorded());
+            ChatHelper.message(sender, "Profiler results over " + ticks + " ticks (average time per tick)", new Style().setColor(TextFormatting.AQUA).setUnderlined(true));
+            listProfile(sender, "Tile classes", ServerProfiler.getTable(ServerProfiler.TILES), ticks, top);
+            listProfile(sender, "Dimensions", ServerProfiler.getTable(ServerProfiler.DIMENSIONS), ticks, top);
+            listProfile(sender, "Chunks", ServerProfiler.getTable(ServerProfiler.CHUNKS), ticks, top);
+            listProfile(sender, "Processes", ServerProfiler.getTable(ServerProfiler.PROCESSES), ticks, top);
+            listProfile(sender, "Packet handlers", ServerProfiler.getTable(ServerProfiler.PACKETS), ticks, top);
+            listProfile(sender, "Other", ServerProfiler.getTable(ServerProfiler.SECTIONS), ticks, top);
+        });
+    }
+
+    private void listProfile(ICommandSender sender, String title, List<ServerProfiler.Entry> entries, int ticks, int top) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        ChatHelper.message(sender, title, TextFormatting.BLUE);
+        for (int i = 0; i < entries.size() && i < top; i++) {
+            ServerProfiler.Entry entry = entries.get(i);
+            ChatHelper.message(sender, String.format("-%s: %.3fms (%.2f%%), %s calls, p50 %.1fus, p99 %.1fus, p99.9 %.1fus", entry.name, entry.nanos / 1000000D / ticks, entry.nanos / 500000D / ticks, Utils.addCommas(entry.calls), entry.p50 / 1000D, entry.p99 / 1000D, entry.p999 / 1000D), TextFormatting.GRAY);
+        }
+    }
+
+    private void listTickSpikes(ICommandSender sender) {
+        if (BCConfig.tickWatchdogThreshold <= 0) {
+            ChatHelper.message(sender, "The tick watchdog is disabled. See the tickWatchdogThreshold config option", TextFormatting.RED);
+        }
+        List<File> files = TickWatchdog.getSpikeFiles();
+        if (files.isEmpty()) {
+            ChatHelper.message(sender, "No tick spikes have been recorded", TextFormatting.GREEN);
+            return;
+        }
+        ChatHelper.message(sender, "Recorded tick spikes (newest first) in " + TickWatchdog.getSpikeFolder().getAbsolutePath(), new Style().setColor(TextFormatting.AQUA).setUnderlined(true));
+        for (File file : files) {
+            ChatHelper.message(sender, "-" + file.getName() + " (" + Utils.formatNumber(file.length()) + "B)", TextFormatting.GRAY);
+        }
+    }
+
     private void eggify(MinecraftServer server, ICommandSender sender, String[] args) throws CommandException {
         EntityPlayerMP player = getCommandSenderAsPlayer(sender);
         Entity entity = traceEntity(player);
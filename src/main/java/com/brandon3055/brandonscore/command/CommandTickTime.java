@@ -1,8 +1,9 @@
 package com.brandon3055.brandonscore.command;
 
-import com.brandon3055.brandonscore.BrandonsCore;
 import com.brandon3055.brandonscore.handlers.IProcess;
 import com.brandon3055.brandonscore.handlers.ProcessHandler;
+import com.brandon3055.brandonscore.network.OutboundPacketScheduler.Priority;
+import com.brandon3055.brandonscore.network.PacketDispatcher;
 import com.brandon3055.brandonscore.network.PacketTickTime;
 import net.minecraft.command.CommandBase;
 import net.minecraft.command.CommandException;
@@ -96,7 +97,7 @@ public class CommandTickTime extends CommandBase {
                 dimTimes.put(dim, (int) (worldTickTimes.get(dim)[server.getTickCounter() % 100] / 10000L));
             }
 
-            BrandonsCore.network.sendTo(new PacketTickTime(dimTimes, overallTick), player);
+            PacketDispatcher.sendTo(new PacketTickTime(dimTimes, overallTick), player, Priority.GUI);
         }
 
         @Override
@@ -1,5 +1,6 @@
 package com.brandon3055.brandonscore.handlers;
 
+import com.brandon3055.brandonscore.utils.ServerProfiler;
 import net.minecraftforge.common.MinecraftForge;
 import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
 import net.minecraftforge.fml.common.gameevent.TickEvent;
@@ -36,7 +37,9 @@ public class ProcessHandler {
                     i.remove();
                 }
                 else {
+                    long start = ServerProfiler.start();
                     process.updateProcess();
+                    ServerProfiler.recordProcess(process, start);
                 }
             }
 
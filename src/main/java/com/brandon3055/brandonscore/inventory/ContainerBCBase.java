@@ -69,6 +69,14 @@ public class ContainerBCBase<T extends TileBCBase> extends Container {
         }
     }
 
+    @Override
+    public void onContainerClosed(EntityPlayer playerIn) {
+        super.onContainerClosed(playerIn);
+        if (playerIn instanceof EntityPlayerMP && tile != null) {
+            tile.getDataManager().removeListener((EntityPlayerMP) playerIn);
+        }
+    }
+
     @Override
     public boolean canInteractWith(EntityPlayer playerIn) {
         if (tile instanceof IInventory) {
@@ -2,6 +2,8 @@ package com.brandon3055.brandonscore.lib;
 
 import com.brandon3055.brandonscore.BrandonsCore;
 import com.brandon3055.brandonscore.handlers.FileHandler;
+import com.brandon3055.brandonscore.network.OutboundPacketScheduler;
+import com.brandon3055.brandonscore.network.OutboundPacketScheduler.Priority;
 import com.brandon3055.brandonscore.network.PacketContributor;
 import com.brandon3055.brandonscore.utils.LogHelperBC;
 import com.google.common.base.Charsets;
@@ -17,6 +19,8 @@ import net.minecraft.entity.player.EntityPlayerMP;
 import net.minecraft.nbt.JsonToNBT;
 import net.minecraft.nbt.NBTException;
 import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.network.Packet;
+import net.minecraft.server.MinecraftServer;
 import net.minecraftforge.common.MinecraftForge;
 import net.minecraftforge.fml.common.FMLCommonHandler;
 import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
@@ -265,7 +269,7 @@ public class ModContributorHandler {
     public void onPlayerLoggedIn(PlayerEvent.PlayerLoggedInEvent event) {
         if (!event.player.world.isRemote && event.player instanceof EntityPlayerMP) {
             for (ContributorData data : nameContributorDataMap.values()) {
-                BrandonsCore.network.sendTo(new PacketContributor(modid, data.name, data.config), (EntityPlayerMP) event.player);
+                OutboundPacketScheduler.send(BrandonsCore.network.getPacketFrom(new PacketContributor(modid, data.name, data.config)), (EntityPlayerMP) event.player, Priority.GUI, null);
             }
         }
     }
@@ -282,7 +286,11 @@ public class ModContributorHandler {
 
     public void handleConfigChange(ContributorData contributor, NBTTagCompound config) {
         contributor.config = config;
-        BrandonsCore.network.sendToAll(new PacketContributor(modid, contributor.name, config));
+        MinecraftServer server = FMLCommonHandler.instance().getMinecraftServerInstance();
+        if (server != null) {
+            Packet<?> packet = BrandonsCore.network.getPacketFrom(new PacketContributor(modid, contributor.name, config));
+            server.getPlayerList().getPlayers().forEach(player -> OutboundPacketScheduler.send(packet, player, Priority.GUI, null));
+        }
         saveConfig();
     }
 
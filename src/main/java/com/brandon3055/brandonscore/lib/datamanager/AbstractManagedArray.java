@@ -0,0 +1,112 @@
+package com.brandon3055.brandonscore.lib.datamanager;
+
+import codechicken.lib.data.MCDataInput;
+import codechicken.lib.data.MCDataOutput;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Base class for managed data backed by a fixed size primitive array.
+ * Every index that changes is recorded so the tile sync only has to send the index ranges that changed since the last update.
+ * The size of the array is fixed on construction and must be the same on the server and client.
+ * <p>
+ * Delta format: [run count] then for each run [start offset from the end of the previous run] [length] [elements]<br>
+ * Every {@link #FULL_SYNC_INTERVAL} deltas the whole array is sent as a single run so a client that missed a delta does not stay out of sync.
+ */
+public abstract class AbstractManagedArray extends AbstractManagedData implements IDeltaData {
+
+    /**
+     * The full array is sent instead of the changed ranges every this many tile updates.
+     */
+    public static final int FULL_SYNC_INTERVAL = 100;
+
+    /**
+     * Runs separated by this many unchanged elements or less are merged because the extra header would cost more than the elements.
+     */
+    private static final int MAX_RUN_GAP = 2;
+
+    /**
+     * The indexes that have changed since the last delta was written.
+     */
+    protected final BitSet changed = new BitSet();
+    private int sinceFullSync = 0;
+
+    /**
+     * @return the number of elements in this array.
+     */
+    public abstract int size();
+
+    /**
+     * Writes the elements in the given range. Called with ranges that are always within the bounds of the array.
+     */
+    protected abstract void writeRange(MCDataOutput output, int start, int length);
+
+    /**
+     * Reads elements written by {@link #writeRange(MCDataOutput, int, int)} into the given range.
+     */
+    protected abstract void readRange(MCDataInput input, int start, int length);
+
+    @Override
+    public void toBytes(MCDataOutput output) {
+        writeRange(output, 0, size());
+    }
+
+    @Override
+    public void fromBytes(MCDataInput input) {
+        readRange(input, 0, size());
+    }
+
+    @Override
+    public void writeDelta(MCDataOutput output) {
+        if (++sinceFullSync >= FULL_SYNC_INTERVAL) {
+            sinceFullSync = 0;
+            changed.set(0, size());
+        }
+        int[] runs = new int[8];
+        int count = 0;
+        int end = -MAX_RUN_GAP - 1;
+        for (int start = changed.nextSetBit(0); start >= 0; start = changed.nextSetBit(end)) {
+            int runEnd = changed.nextClearBit(start);
+            if (start - end <= MAX_RUN_GAP && count > 0) {
+                runs[count * 2 - 1] = runEnd;
+            }
+            else {
+                if (count * 2 == runs.length) {
+                    runs = Arrays.copyOf(runs, runs.length * 2);
+                }
+                runs[count * 2] = start;
+                runs[count * 2 + 1] = runEnd;
+                count++;
+            }
+            end = runEnd;
+        }
+        changed.clear();
+
+        output.writeVarInt(count);
+        int last = 0;
+        for (int i = 0; i < count; i++) {
+            int start = runs[i * 2];
+            int length = runs[i * 2 + 1] - start;
+            output.writeVarInt(start - last);
+            output.writeVarInt(length);
+            writeRange(output, start, length);
+            last = start + length;
+        }
+    }
+
+    @Override
+    public void readDelta(MCDataInput input) {
+        int count = input.readVarInt();
+        int last = 0;
+        for (int i = 0; i < count; i++) {
+            int start = last + input.readVarInt();
+            int length = input.readVarInt();
+            if (start < 0 || length < 0 || start + length > size()) {
+                throw new IllegalStateException("Received an invalid range for " + name + " [" + start + ", " + length + "] Array size: " + size());
+            }
+            readRange(input, start, length);
+            last = start + length;
+        }
+    }
+}
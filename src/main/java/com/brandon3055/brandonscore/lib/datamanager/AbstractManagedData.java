@@ -9,6 +9,7 @@ public abstract class AbstractManagedData implements IManagedData {
 
     protected String name = "";
     protected int index = 0;
+    protected IDataManager dataManager = null;
 
     @Override
     public void setName(String name) {
@@ -29,4 +30,16 @@ public abstract class AbstractManagedData implements IManagedData {
     public int getIndex() {
         return index;
     }
+
+    @Override
+    public void setDataManager(IDataManager dataManager) {
+        this.dataManager = dataManager;
+    }
+
+    @Override
+    public void markDirty() {
+        if (dataManager != null) {
+            dataManager.markDirty(this);
+        }
+    }
 }
@@ -0,0 +1,144 @@
+package com.brandon3055.brandonscore.lib.datamanager;
+
+import codechicken.lib.data.MCDataInput;
+import codechicken.lib.data.MCDataOutput;
+import net.minecraft.nbt.NBTTagCompound;
+
+import static com.brandon3055.brandonscore.utils.DataUtils.readZigZag;
+import static com.brandon3055.brandonscore.utils.DataUtils.writeZigZag;
+
+/**
+ * A compact wire encoding for numeric managed data that is synchronized via the tile.
+ * Rather than writing full width values every time this writes zigzag varint deltas against the last value sent.
+ * Floating point values are quantised to the configured precision. A full keyframe is sent every keyframeInterval updates.
+ * <p>
+ * Every update starts with a header byte. The top bit marks a keyframe, the next bit marks a raw keyframe (the full unquantised value,
+ * used when a value can not be quantised) and the lower 6 bits are a sequence number that is incremented by every update.
+ * A client only applies a delta if it is the next update in the sequence after the last one it applied so a delta is never applied
+ * to the wrong baseline. The server's current sequence and baseline are included in the tile's update tag
+ * (see {@link #writeState(NBTTagCompound)}) so a client that starts watching the tile part way through can apply deltas immediately.
+ * Each side of the connection has its own codec instance.
+ */
+public class CompactCodec {
+
+    private static final int KEYFRAME = 0x80;
+    private static final int RAW = 0x40;
+    private static final int SEQUENCE_MASK = 0x3F;
+
+    public final double precision;
+    public final int keyframeInterval;
+    private long[] baseline = null;
+    private int sinceKeyframe = 0;
+    private int sequence = 0;
+
+    public CompactCodec(double precision, int keyframeInterval) {
+        this.precision = precision;
+        this.keyframeInterval = Math.max(1, keyframeInterval);
+    }
+
+    public void write(ICompactData data, MCDataOutput output) {
+        int count = data.componentCount();
+        sequence = (sequence + 1) & SEQUENCE_MASK;
+
+        //Values that are out of range for the quantised encoding are sent in full. The baseline is cleared so the next update is a keyframe.
+        if (!canEncode(data)) {
+            output.writeByte((byte) (KEYFRAME | RAW | sequence));
+            data.toBytes(output);
+            baseline = null;
+            sinceKeyframe = 0;
+            return;
+        }
+
+        boolean keyframe = baseline == null || ++sinceKeyframe >= keyframeInterval;
+        if (baseline == null) {
+            baseline = new long[count];
+        }
+        if (keyframe) {
+            sinceKeyframe = 0;
+        }
+
+        output.writeByte((byte) ((keyframe ? KEYFRAME : 0) | sequence));
+        for (int i = 0; i < count; i++) {
+            long value = data.encodeComponent(i, precision);
+            writeZigZag(output, keyframe ? value : value - baseline[i]);
+            baseline[i] = value;
+        }
+    }
+
+    public void read(ICompactData data, MCDataInput input) {
+        int count = data.componentCount();
+        int header = input.readByte() & 0xFF;
+        int received = header & SEQUENCE_MASK;
+        if ((header & RAW) != 0) {
+            data.fromBytes(input);
+            baseline = null;
+            sequence = received;
+            return;
+        }
+
+        boolean keyframe = (header & KEYFRAME) != 0;
+        if (keyframe && baseline == null) {
+            baseline = new long[count];
+        }
+
+        //Deltas that do not directly follow the last update we applied must still be read but can not be applied.
+        boolean apply = keyframe || (baseline != null && received == ((sequence + 1) & SEQUENCE_MASK));
+        for (int i = 0; i < count; i++) {
+            long value = readZigZag(input);
+            if (apply) {
+                if (!keyframe) {
+                    value += baseline[i];
+                }
+                baseline[i] = value;
+                data.decodeComponent(i, value, precision);
+            }
+        }
+        if (apply) {
+            sequence = received;
+        }
+    }
+
+    /**
+     * Server side. Writes the current sequence and baseline so a client receiving the tile's update tag can continue the delta stream
+     * from this point. Nothing is written if no update has been sent since the last keyframe reset.
+     */
+    public void writeState(NBTTagCompound compound) {
+        if (baseline == null) {
+            return;
+        }
+        compound.setByte("seq", (byte) sequence);
+        for (int i = 0; i < baseline.length; i++) {
+            compound.setLong(String.valueOf(i), baseline[i]);
+        }
+    }
+
+    /**
+     * Client side. Applies the state written by {@link #writeState(NBTTagCompound)}.
+     * If the compound is empty the server has not started a delta stream so any existing baseline is discarded.
+     */
+    public void readState(ICompactData data, NBTTagCompound compound) {
+        if (!compound.hasKey("seq")) {
+            baseline = null;
+            return;
+        }
+        int count = data.componentCount();
+        baseline = new long[count];
+        for (int i = 0; i < count; i++) {
+            baseline[i] = compound.getLong(String.valueOf(i));
+        }
+        sequence = compound.getByte("seq") & SEQUENCE_MASK;
+    }
+
+    /**
+     * @return false if any component can not be represented by the quantised encoding. e.g. a double that is too large for the configured precision.
+     */
+    private boolean canEncode(ICompactData data) {
+        for (int i = 0; i < data.componentCount(); i++) {
+            long value = data.encodeComponent(i, precision);
+            if (value == Long.MAX_VALUE || value == Long.MIN_VALUE || Double.isNaN(data.getComponent(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
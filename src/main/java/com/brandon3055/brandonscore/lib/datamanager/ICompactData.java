@@ -0,0 +1,31 @@
+package com.brandon3055.brandonscore.lib.datamanager;
+
+/**
+ * Implemented by managed data that can be represented as a fixed number of numeric components.
+ * This allows the data to be synchronized using the {@link CompactCodec}. See {@link TileDataOptions#compactSync(double, int)}
+ */
+public interface ICompactData extends IManagedData {
+
+    /**
+     * @return the number of numeric components that make up this data. e.g. 1 for an int, 3 for a vector.
+     */
+    int componentCount();
+
+    /**
+     * @return the raw value of the given component. Used for change thresholds.
+     */
+    double getComponent(int component);
+
+    /**
+     * @param component the component to encode.
+     * @param precision the quantisation step used for floating point types. Integer types ignore this.
+     * @return the component as a long. This is exact for integer types and round(value / precision) for floating point types.
+     * Values that saturate (Long.MAX_VALUE or Long.MIN_VALUE) are sent as a full value keyframe instead.
+     */
+    long encodeComponent(int component, double precision);
+
+    /**
+     * Applies a component value previously produced by {@link #encodeComponent(int, double)}
+     */
+    void decodeComponent(int component, long value, double precision);
+}
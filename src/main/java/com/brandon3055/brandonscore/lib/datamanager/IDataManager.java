@@ -32,6 +32,12 @@ public interface IDataManager {
 
     void receiveSyncData(MCDataInput input);
 
+    /**
+     * Called by {@link IManagedData#markDirty()} when a data object is modified via its setter.
+     * Managers that support push based change tracking should queue this data for synchronization.
+     */
+    default void markDirty(IManagedData data) {}
+
     /**
      * @param name the name of the data to get.
      * @return return the managed object with the given name or null if there is no object registered with this name.
@@ -0,0 +1,25 @@
+package com.brandon3055.brandonscore.lib.datamanager;
+
+import codechicken.lib.data.MCDataInput;
+import codechicken.lib.data.MCDataOutput;
+
+/**
+ * Implemented by managed data that can send just the parts of its value that have changed rather than the whole value.
+ * Deltas are only used for the tile sync where every watcher receives every update. Everything else (container sync,
+ * forced syncs, restricted audiences) uses the full value from {@link #toBytes(MCDataOutput)}.
+ * <p>
+ * Clients that start watching the tile part way through receive the full value via the tile's update tag so deltas should be
+ * written such that applying them to a newer value is harmless. e.g. "set key to value" rather than "add 5 to key".
+ */
+public interface IDeltaData extends IManagedData {
+
+    /**
+     * Write the changes since the last call to this method.
+     */
+    void writeDelta(MCDataOutput output);
+
+    /**
+     * Apply changes written by {@link #writeDelta(MCDataOutput)}
+     */
+    void readDelta(MCDataInput input);
+}
@@ -0,0 +1,15 @@
+package com.brandon3055.brandonscore.lib.datamanager;
+
+/**
+ * Implemented by numeric managed data that can be smoothly interpolated on the client between updates.
+ * See {@link TileDataOptions#interpolate(int)}
+ */
+public interface IInterpolatedData extends ICompactData {
+
+    void setInterpolator(Interpolator interpolator);
+
+    /**
+     * @return the interpolator for this data or null if interpolation is not enabled.
+     */
+    Interpolator getInterpolator();
+}
@@ -4,6 +4,8 @@ import codechicken.lib.data.MCDataInput;
 import codechicken.lib.data.MCDataOutput;
 import net.minecraft.nbt.NBTTagCompound;
 
+import java.util.function.Consumer;
+
 /**
  * Created by brandon3055 on 12/06/2017.
  *
@@ -42,6 +44,19 @@ public interface IManagedData {
     int getIndex();
 
 
+    /**
+     * Called by the manager when this data is registered.
+     * Allows the data to notify its manager when it is modified via its setter. See {@link #markDirty()}
+     */
+    default void setDataManager(IDataManager dataManager) {}
+
+    /**
+     * Notifies the owning manager that this data has changed so it will be synchronized without needing to be polled.
+     * This is called automatically by the setter methods. If you modify the value directly (or modify a mutable value in place)
+     * you can call this to have the change picked up immediately.
+     */
+    default void markDirty() {}
+
     /**
      * When this is called compare the stored data to whatever data cache you use to check for changes.
      * If the data has changed return true and reset the cache so that the next time this is called it will return false
@@ -65,6 +80,18 @@ public interface IManagedData {
      */
     void fromBytes(MCDataInput input);
 
+    /**
+     * Used when sync packets are encoded off the server thread. See {@link SyncEncoder}<br>
+     * If this data can take an immutable copy of its value that is much cheaper than serializing it, return a writer that writes the copy
+     * the same way {@link #toBytes(MCDataOutput)} would. The writer will be called from the encoder thread.
+     * Types where a copy costs about as much as serializing (nbt, item stacks) should not implement this.
+     *
+     * @return a writer for a copy of the current value or null (the default) to have the data serialized immediately via toBytes.
+     */
+    default Consumer<MCDataOutput> snapshot() {
+        return null;
+    }
+
     /**
      * Save this data to nbt using its name to identify it.
      * The data manager should create a dedicated compound to save all data to so
@@ -0,0 +1,84 @@
+package com.brandon3055.brandonscore.lib.datamanager;
+
+import com.brandon3055.brandonscore.BrandonsCore;
+import net.minecraft.world.World;
+
+/**
+ * Client side. Keeps the last two values received for a piece of {@link IInterpolatedData} along with the server tick they were sent on
+ * so the value can be smoothly animated between updates.
+ * <p>
+ * In interpolate mode the displayed value runs one sync interval behind the server and lerps between the last two samples.
+ * In extrapolate mode there is no delay. The value is predicted forward from the last two samples for up to one interval past the latest
+ * sample and snaps to the latest sample if no update arrives within two intervals (the value has stopped changing).
+ */
+public class Interpolator {
+
+    public final int interval;
+    public final boolean extrapolate;
+    private double[] previous = null;
+    private double[] latest = null;
+    private long previousTick = 0;
+    private long latestTick = 0;
+
+    public Interpolator(int interval, boolean extrapolate) {
+        this.interval = Math.max(1, interval);
+        this.extrapolate = extrapolate;
+    }
+
+    /**
+     * Called when a new value is received along with the server tick it was sent on.
+     */
+    public void addSample(long tick, ICompactData data) {
+        int count = data.componentCount();
+        if (latest == null) {
+            latest = new double[count];
+        }
+        else if (tick > latestTick) {
+            double[] swap = previous == null ? new double[count] : previous;
+            previous = latest;
+            latest = swap;
+            //If the value has not changed for a while animate from the previous value over one interval rather than over the whole gap.
+            previousTick = Math.max(latestTick, tick - interval);
+        }
+        latestTick = tick;
+        for (int i = 0; i < count; i++) {
+            latest[i] = data.getComponent(i);
+        }
+    }
+
+    /**
+     * Called when a value is received without a timestamp (e.g. from nbt). The displayed value will snap to the new value.
+     */
+    public void reset() {
+        previous = null;
+        latest = null;
+    }
+
+    /**
+     * @param component    the component to get.
+     * @param partialTicks the render partial ticks.
+     * @param current      the current value of the component. Returned if there are not enough samples to interpolate.
+     * @return the interpolated value of the given component.
+     */
+    public double get(int component, float partialTicks, double current) {
+        World world = BrandonsCore.proxy.getClientWorld();
+        if (latest == null || previous == null || world == null || latestTick <= previousTick) {
+            return current;
+        }
+
+        double time = world.getTotalWorldTime() + partialTicks;
+        double span = latestTick - previousTick;
+        double f;
+        if (extrapolate) {
+            if (time - latestTick > interval * 2) {
+                return latest[component];
+            }
+            f = Math.min((time - previousTick) / span, 1 + interval / span);
+        }
+        else {
+            f = Math.min((time - interval - previousTick) / span, 1);
+        }
+        f = Math.max(f, 0);
+        return previous[component] + (latest[component] - previous[component]) * f;
+    }
+}
@@ -0,0 +1,129 @@
+package com.brandon3055.brandonscore.lib.datamanager;
+
+import codechicken.lib.data.MCDataInput;
+import codechicken.lib.data.MCDataOutput;
+import net.minecraft.nbt.NBTTagCompound;
+
+/**
+ * A fixed size set of bits backed by a long array. Only the bit ranges that changed are sent via the tile sync. See {@link AbstractManagedArray}
+ * Bits are sent and saved to NBT packed 8 to a byte.
+ */
+public class ManagedBitSet extends AbstractManagedArray {
+
+    private final int size;
+    public final long[] value;
+    private final long[] lastTickValue;
+
+    public ManagedBitSet(int size) {
+        this.size = size;
+        this.value = new long[(size + 63) >> 6];
+        this.lastTickValue = new long[value.length];
+    }
+
+    public boolean get(int index) {
+        checkIndex(index);
+        return (value[index >> 6] & (1L << index)) != 0;
+    }
+
+    /**
+     * Sets the bit at the given index and marks this data dirty if it has changed.
+     */
+    public void set(int index, boolean bit) {
+        if (get(index) != bit) {
+            value[index >> 6] ^= 1L << index;
+            markDirty();
+        }
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean detectChanges() {
+        boolean dirty = false;
+        for (int word = 0; word < value.length; word++) {
+            long diff = value[word] ^ lastTickValue[word];
+            if (diff != 0) {
+                lastTickValue[word] = value[word];
+                for (; diff != 0; diff &= diff - 1) {
+                    changed.set((word << 6) + Long.numberOfTrailingZeros(diff));
+                }
+                dirty = true;
+            }
+        }
+        return dirty;
+    }
+
+    @Override
+    protected void writeRange(MCDataOutput output, int start, int length) {
+        int b = 0;
+        for (int i = 0; i < length; i++) {
+            if (get(start + i)) {
+                b |= 1 << (i & 7);
+            }
+            if ((i & 7) == 7 || i == length - 1) {
+                output.writeByte((byte) b);
+                b = 0;
+            }
+        }
+    }
+
+    @Override
+    protected void readRange(MCDataInput input, int start, int length) {
+        int b = 0;
+        for (int i = 0; i < length; i++) {
+            if ((i & 7) == 0) {
+                b = input.readByte();
+            }
+            int index = start + i;
+            if ((b & (1 << (i & 7))) != 0) {
+                value[index >> 6] |= 1L << index;
+            }
+            else {
+                value[index >> 6] &= ~(1L << index);
+            }
+        }
+    }
+
+    @Override
+    public void toNBT(NBTTagCompound compound) {
+        byte[] bytes = new byte[(size + 7) >> 3];
+        for (int i = 0; i < size; i++) {
+            if (get(i)) {
+                bytes[i >> 3] |= 1 << (i & 7);
+            }
+        }
+        compound.setByteArray(name, bytes);
+    }
+
+    @Override
+    public void fromNBT(NBTTagCompound compound) {
+        byte[] bytes = compound.getByteArray(name);
+        int bits = Math.min(size, bytes.length << 3);
+        for (int i = 0; i < bits; i++) {
+            if ((bytes[i >> 3] & (1 << (i & 7))) != 0) {
+                value[i >> 6] |= 1L << i;
+            }
+            else {
+                value[i >> 6] &= ~(1L << i);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder(size);
+        for (int i = 0; i < size; i++) {
+            builder.append(get(i) ? '1' : '0');
+        }
+        return builder.toString();
+    }
+}
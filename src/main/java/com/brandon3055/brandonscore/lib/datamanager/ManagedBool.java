@@ -16,6 +16,20 @@ public class ManagedBool extends AbstractManagedData {
         this.value = this.lastTickValue = value;
     }
 
+    public boolean get() {
+        return value;
+    }
+
+    /**
+     * Sets the value and marks this data dirty if the value has changed.
+     */
+    public void set(boolean value) {
+        if (this.value != value) {
+            this.value = value;
+            markDirty();
+        }
+    }
+
     @Override
     public boolean detectChanges() {
         if (value != lastTickValue) {
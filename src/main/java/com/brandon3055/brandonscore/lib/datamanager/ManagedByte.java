@@ -7,7 +7,7 @@ import net.minecraft.nbt.NBTTagCompound;
 /**
  * Created by brandon3055 on 12/06/2017.
  */
-public class ManagedByte extends AbstractManagedData {
+public class ManagedByte extends AbstractManagedData implements ICompactData {
 
     public byte value;
     private byte lastTickValue;
@@ -16,6 +16,20 @@ public class ManagedByte extends AbstractManagedData {
         this.value = this.lastTickValue = (byte) value;
     }
 
+    public byte get() {
+        return value;
+    }
+
+    /**
+     * Sets the value and marks this data dirty if the value has changed.
+     */
+    public void set(byte value) {
+        if (this.value != value) {
+            this.value = value;
+            markDirty();
+        }
+    }
+
     @Override
     public boolean detectChanges() {
         if (value != lastTickValue) {
@@ -35,6 +49,26 @@ public class ManagedByte extends AbstractManagedData {
         value = input.readByte();
     }
 
+    @Override
+    public int componentCount() {
+        return 1;
+    }
+
+    @Override
+    public double getComponent(int component) {
+        return value;
+    }
+
+    @Override
+    public long encodeComponent(int component, double precision) {
+        return value;
+    }
+
+    @Override
+    public void decodeComponent(int component, long value, double precision) {
+        this.value = (byte) value;
+    }
+
     @Override
     public void toNBT(NBTTagCompound compound) {
         compound.setByte(name, value);
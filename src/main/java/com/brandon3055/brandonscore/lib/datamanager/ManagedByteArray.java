@@ -0,0 +1,87 @@
+package com.brandon3055.brandonscore.lib.datamanager;
+
+import codechicken.lib.data.MCDataInput;
+import codechicken.lib.data.MCDataOutput;
+import net.minecraft.nbt.NBTTagCompound;
+
+import java.util.Arrays;
+
+/**
+ * A fixed size byte array. Only the index ranges that changed are sent via the tile sync. See {@link AbstractManagedArray}
+ */
+public class ManagedByteArray extends AbstractManagedArray {
+
+    public final byte[] value;
+    private final byte[] lastTickValue;
+
+    public ManagedByteArray(int size) {
+        this(new byte[size]);
+    }
+
+    public ManagedByteArray(byte[] value) {
+        this.value = value;
+        this.lastTickValue = value.clone();
+    }
+
+    public byte get(int index) {
+        return value[index];
+    }
+
+    /**
+     * Sets the value at the given index and marks this data dirty if the value has changed.
+     */
+    public void set(int index, byte value) {
+        if (this.value[index] != value) {
+            this.value[index] = value;
+            markDirty();
+        }
+    }
+
+    @Override
+    public int size() {
+        return value.length;
+    }
+
+    @Override
+    public boolean detectChanges() {
+        boolean dirty = false;
+        for (int i = 0; i < value.length; i++) {
+            if (value[i] != lastTickValue[i]) {
+                lastTickValue[i] = value[i];
+                changed.set(i);
+                dirty = true;
+            }
+        }
+        return dirty;
+    }
+
+    @Override
+    protected void writeRange(MCDataOutput output, int start, int length) {
+        for (int i = start; i < start + length; i++) {
+            output.writeByte(value[i]);
+        }
+    }
+
+    @Override
+    protected void readRange(MCDataInput input, int start, int length) {
+        for (int i = start; i < start + length; i++) {
+            value[i] = input.readByte();
+        }
+    }
+
+    @Override
+    public void toNBT(NBTTagCompound compound) {
+        compound.setByteArray(name, value.clone());
+    }
+
+    @Override
+    public void fromNBT(NBTTagCompound compound) {
+        byte[] saved = compound.getByteArray(name);
+        System.arraycopy(saved, 0, value, 0, Math.min(saved.length, value.length));
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(value);
+    }
+}
@@ -7,15 +7,38 @@ import net.minecraft.nbt.NBTTagCompound;
 /**
  * Created by brandon3055 on 12/06/2017.
  */
-public class ManagedDouble extends AbstractManagedData {
+public class ManagedDouble extends AbstractManagedData implements IInterpolatedData {
 
     public double value;
     private double lastTickValue;
+    private Interpolator interpolator = null;
 
     public ManagedDouble(double value) {
         this.value = this.lastTickValue = value;
     }
 
+    public double get() {
+        return value;
+    }
+
+    /**
+     * Sets the value and marks this data dirty if the value has changed.
+     */
+    public void set(double value) {
+        if (this.value != value) {
+            this.value = value;
+            markDirty();
+        }
+    }
+
+    /**
+     * Client side. Returns the smoothly interpolated value if interpolation is enabled for this data. Otherwise returns the current value.
+     * See {@link TileDataOptions#interpolate(int)}
+     */
+    public double getInterpolated(float partialTicks) {
+        return interpolator == null ? value : interpolator.get(0, partialTicks, value);
+    }
+
     @Override
     public boolean detectChanges() {
         if (value != lastTickValue) {
@@ -35,6 +58,36 @@ public class ManagedDouble extends AbstractManagedData {
         value = input.readDouble();
     }
 
+    @Override
+    public int componentCount() {
+        return 1;
+    }
+
+    @Override
+    public double getComponent(int component) {
+        return value;
+    }
+
+    @Override
+    public long encodeComponent(int component, double precision) {
+        return Math.round(value / precision);
+    }
+
+    @Override
+    public void decodeComponent(int component, long value, double precision) {
+        this.value = value * precision;
+    }
+
+    @Override
+    public void setInterpolator(Interpolator interpolator) {
+        this.interpolator = interpolator;
+    }
+
+    @Override
+    public Interpolator getInterpolator() {
+        return interpolator;
+    }
+
     @Override
     public void toNBT(NBTTagCompound compound) {
         compound.setDouble(name, value);
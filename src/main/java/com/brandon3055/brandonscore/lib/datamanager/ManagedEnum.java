@@ -29,6 +29,20 @@ public class ManagedEnum<T extends Enum<T>> extends AbstractManagedData {
         }
     }
 
+    public T get() {
+        return value;
+    }
+
+    /**
+     * Sets the value and marks this data dirty if the value has changed.
+     */
+    public void set(T value) {
+        if (this.value != value) {
+            this.value = value;
+            markDirty();
+        }
+    }
+
     @Override
     public boolean detectChanges() {
         if (value != lastTickValue) {
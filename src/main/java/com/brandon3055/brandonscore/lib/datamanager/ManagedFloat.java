@@ -0,0 +1,105 @@
+package com.brandon3055.brandonscore.lib.datamanager;
+
+import codechicken.lib.data.MCDataInput;
+import codechicken.lib.data.MCDataOutput;
+import net.minecraft.nbt.NBTTagCompound;
+
+/**
+ * Managed float. Supports compact sync and client side interpolation.
+ */
+public class ManagedFloat extends AbstractManagedData implements IInterpolatedData {
+
+    public float value;
+    private float lastTickValue;
+    private Interpolator interpolator = null;
+
+    public ManagedFloat(float value) {
+        this.value = this.lastTickValue = value;
+    }
+
+    public float get() {
+        return value;
+    }
+
+    /**
+     * Sets the value and marks this data dirty if the value has changed.
+     */
+    public void set(float value) {
+        if (this.value != value) {
+            this.value = value;
+            markDirty();
+        }
+    }
+
+    /**
+     * Client side. Returns the smoothly interpolated value if interpolation is enabled for this data. Otherwise returns the current value.
+     * See {@link TileDataOptions#interpolate(int)}
+     */
+    public float getInterpolated(float partialTicks) {
+        return interpolator == null ? value : (float) interpolator.get(0, partialTicks, value);
+    }
+
+    @Override
+    public boolean detectChanges() {
+        if (value != lastTickValue) {
+            lastTickValue = value;
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void toBytes(MCDataOutput output) {
+        output.writeFloat(value);
+    }
+
+    @Override
+    public void fromBytes(MCDataInput input) {
+        value = input.readFloat();
+    }
+
+    @Override
+    public int componentCount() {
+        return 1;
+    }
+
+    @Override
+    public double getComponent(int component) {
+        return value;
+    }
+
+    @Override
+    public long encodeComponent(int component, double precision) {
+        return Math.round(value / precision);
+    }
+
+    @Override
+    public void decodeComponent(int component, long value, double precision) {
+        this.value = (float) (value * precision);
+    }
+
+    @Override
+    public void setInterpolator(Interpolator interpolator) {
+        this.interpolator = interpolator;
+    }
+
+    @Override
+    public Interpolator getInterpolator() {
+        return interpolator;
+    }
+
+    @Override
+    public void toNBT(NBTTagCompound compound) {
+        compound.setFloat(name, value);
+    }
+
+    @Override
+    public void fromNBT(NBTTagCompound compound) {
+        value = compound.getFloat(name);
+    }
+
+    @Override
+    public String toString() {
+        return String.valueOf(value);
+    }
+}
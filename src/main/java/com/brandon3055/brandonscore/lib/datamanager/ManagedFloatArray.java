@@ -0,0 +1,95 @@
+package com.brandon3055.brandonscore.lib.datamanager;
+
+import codechicken.lib.data.MCDataInput;
+import codechicken.lib.data.MCDataOutput;
+import net.minecraft.nbt.NBTTagCompound;
+
+import java.util.Arrays;
+
+/**
+ * A fixed size float array. Only the index ranges that changed are sent via the tile sync. See {@link AbstractManagedArray}
+ * Saved to NBT as an int array containing the raw float bits.
+ */
+public class ManagedFloatArray extends AbstractManagedArray {
+
+    public final float[] value;
+    private final float[] lastTickValue;
+
+    public ManagedFloatArray(int size) {
+        this(new float[size]);
+    }
+
+    public ManagedFloatArray(float[] value) {
+        this.value = value;
+        this.lastTickValue = value.clone();
+    }
+
+    public float get(int index) {
+        return value[index];
+    }
+
+    /**
+     * Sets the value at the given index and marks this data dirty if the value has changed.
+     */
+    public void set(int index, float value) {
+        if (Float.floatToIntBits(this.value[index]) != Float.floatToIntBits(value)) {
+            this.value[index] = value;
+            markDirty();
+        }
+    }
+
+    @Override
+    public int size() {
+        return value.length;
+    }
+
+    @Override
+    public boolean detectChanges() {
+        boolean dirty = false;
+        for (int i = 0; i < value.length; i++) {
+            //Compare the bits so NaN does not count as a change every tick.
+            if (Float.floatToIntBits(value[i]) != Float.floatToIntBits(lastTickValue[i])) {
+                lastTickValue[i] = value[i];
+                changed.set(i);
+                dirty = true;
+            }
+        }
+        return dirty;
+    }
+
+    @Override
+    protected void writeRange(MCDataOutput output, int start, int length) {
+        for (int i = start; i < start + length; i++) {
+            output.writeFloat(value[i]);
+        }
+    }
+
+    @Override
+    protected void readRange(MCDataInput input, int start, int length) {
+        for (int i = start; i < start + length; i++) {
+            value[i] = input.readFloat();
+        }
+    }
+
+    @Override
+    public void toNBT(NBTTagCompound compound) {
+        int[] bits = new int[value.length];
+        for (int i = 0; i < value.length; i++) {
+            bits[i] = Float.floatToIntBits(value[i]);
+        }
+        compound.setIntArray(name, bits);
+    }
+
+    @Override
+    public void fromNBT(NBTTagCompound compound) {
+        int[] bits = compound.getIntArray(name);
+        for (int i = 0; i < Math.min(bits.length, value.length); i++) {
+            value[i] = Float.intBitsToFloat(bits[i]);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(value);
+    }
+}
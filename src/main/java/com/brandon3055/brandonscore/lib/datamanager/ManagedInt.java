@@ -7,7 +7,7 @@ import net.minecraft.nbt.NBTTagCompound;
 /**
  * Created by brandon3055 on 12/06/2017.
  */
-public class ManagedInt extends AbstractManagedData {
+public class ManagedInt extends AbstractManagedData implements ICompactData {
 
     public int value;
     private int lastTickValue;
@@ -16,6 +16,20 @@ public class ManagedInt extends AbstractManagedData {
         this.value = this.lastTickValue = value;
     }
 
+    public int get() {
+        return value;
+    }
+
+    /**
+     * Sets the value and marks this data dirty if the value has changed.
+     */
+    public void set(int value) {
+        if (this.value != value) {
+            this.value = value;
+            markDirty();
+        }
+    }
+
     @Override
     public boolean detectChanges() {
         if (value != lastTickValue) {
@@ -35,6 +49,26 @@ public class ManagedInt extends AbstractManagedData {
         value = input.readInt();
     }
 
+    @Override
+    public int componentCount() {
+        return 1;
+    }
+
+    @Override
+    public double getComponent(int component) {
+        return value;
+    }
+
+    @Override
+    public long encodeComponent(int component, double precision) {
+        return value;
+    }
+
+    @Override
+    public void decodeComponent(int component, long value, double precision) {
+        this.value = (int) value;
+    }
+
     @Override
     public void toNBT(NBTTagCompound compound) {
         compound.setInteger(name, value);
@@ -0,0 +1,90 @@
+package com.brandon3055.brandonscore.lib.datamanager;
+
+import codechicken.lib.data.MCDataInput;
+import codechicken.lib.data.MCDataOutput;
+import net.minecraft.nbt.NBTTagCompound;
+
+import java.util.Arrays;
+
+import static com.brandon3055.brandonscore.utils.DataUtils.readZigZag;
+import static com.brandon3055.brandonscore.utils.DataUtils.writeZigZag;
+
+/**
+ * A fixed size int array. Only the index ranges that changed are sent via the tile sync. See {@link AbstractManagedArray}
+ */
+public class ManagedIntArray extends AbstractManagedArray {
+
+    public final int[] value;
+    private final int[] lastTickValue;
+
+    public ManagedIntArray(int size) {
+        this(new int[size]);
+    }
+
+    public ManagedIntArray(int[] value) {
+        this.value = value;
+        this.lastTickValue = value.clone();
+    }
+
+    public int get(int index) {
+        return value[index];
+    }
+
+    /**
+     * Sets the value at the given index and marks this data dirty if the value has changed.
+     */
+    public void set(int index, int value) {
+        if (this.value[index] != value) {
+            this.value[index] = value;
+            markDirty();
+        }
+    }
+
+    @Override
+    public int size() {
+        return value.length;
+    }
+
+    @Override
+    public boolean detectChanges() {
+        boolean dirty = false;
+        for (int i = 0; i < value.length; i++) {
+            if (value[i] != lastTickValue[i]) {
+                lastTickValue[i] = value[i];
+                changed.set(i);
+                dirty = true;
+            }
+        }
+        return dirty;
+    }
+
+    @Override
+    protected void writeRange(MCDataOutput output, int start, int length) {
+        for (int i = start; i < start + length; i++) {
+            writeZigZag(output, value[i]);
+        }
+    }
+
+    @Override
+    protected void readRange(MCDataInput input, int start, int length) {
+        for (int i = start; i < start + length; i++) {
+            value[i] = (int) readZigZag(input);
+        }
+    }
+
+    @Override
+    public void toNBT(NBTTagCompound compound) {
+        compound.setIntArray(name, value.clone());
+    }
+
+    @Override
+    public void fromNBT(NBTTagCompound compound) {
+        int[] saved = compound.getIntArray(name);
+        System.arraycopy(saved, 0, value, 0, Math.min(saved.length, value.length));
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(value);
+    }
+}
@@ -8,24 +8,70 @@ import javax.annotation.Nonnull;
 
 /**
  * Created by brandon3055 on 12/06/2017.
+ * When synchronized via the tile only the keys that changed are sent. See {@link NBTDiff}
+ * <p>
+ * Diffing walks the whole compound so it is only done when the data has been marked dirty (via {@link #set(NBTTagCompound)} or
+ * {@link #markDirty()}) or the value has been replaced. Code that modifies the compound in place without calling markDirty is still
+ * picked up by a diff every {@link #UNMARKED_DIFF_INTERVAL} polls.
  */
-public class ManagedNBT extends AbstractManagedData {
+public class ManagedNBT extends AbstractManagedData implements IDeltaData {
 
-	public NBTTagCompound value;
-	private NBTTagCompound lastTickValue;
+    /**
+     * The full compound is sent instead of a patch every this many tile updates.
+     */
+    public static final int FULL_SYNC_INTERVAL = 100;
+    /**
+     * An unmarked compound is diffed every this many polls.
+     */
+    public static final int UNMARKED_DIFF_INTERVAL = 20;
+
+    public NBTTagCompound value;
+    private NBTDiff diff;
+    private NBTTagCompound lastValue;
+    private boolean marked = false;
+    private int sinceFullSync = 0;
+    private int sinceDiff = 0;
 
     public ManagedNBT(@Nonnull NBTTagCompound value) {
+        this.value = this.lastValue = value;
+        this.diff = new NBTDiff(value);
+    }
+
+    public NBTTagCompound get() {
+        return value;
+    }
+
+    /**
+     * Sets the value and marks this data dirty.
+     * If you modify the compound in place call {@link #markDirty()} when you are done.
+     */
+    public void set(@Nonnull NBTTagCompound value) {
         this.value = value;
-        this.lastTickValue = value.copy();
+        markDirty();
+    }
+
+    @Override
+    public void markDirty() {
+        marked = true;
+        super.markDirty();
+    }
+
+    /**
+     * Makes the next call to {@link #detectChanges()} diff the compound even if it has not been marked dirty.
+     */
+    protected void requestDiff() {
+        marked = true;
     }
 
     @Override
     public boolean detectChanges() {
-        if (value.equals(lastTickValue)) {
-            lastTickValue = value.copy();
-            return true;
+        if (!marked && value == lastValue && ++sinceDiff < UNMARKED_DIFF_INTERVAL) {
+            return false;
         }
-        return false;
+        marked = false;
+        lastValue = value;
+        sinceDiff = 0;
+        return diff.update(value);
     }
 
     @Override
@@ -38,9 +84,33 @@ public class ManagedNBT extends AbstractManagedData {
         value = input.readNBTTagCompound();
     }
 
+    @Override
+    public void writeDelta(MCDataOutput output) {
+        boolean full = ++sinceFullSync >= FULL_SYNC_INTERVAL;
+        output.writeBoolean(full);
+        if (full) {
+            sinceFullSync = 0;
+            diff.clearPending();
+            output.writeNBTTagCompound(value);
+        }
+        else {
+            diff.writePatch(output, value);
+        }
+    }
+
+    @Override
+    public void readDelta(MCDataInput input) {
+        if (input.readBoolean()) {
+            value = input.readNBTTagCompound();
+        }
+        else {
+            NBTDiff.readPatch(input, value);
+        }
+    }
+
     @Override
     public void toNBT(NBTTagCompound compound) {
-        compound.setTag(name, value);
+        compound.setTag(name, value.copy());
     }
 
     @Override
@@ -7,7 +7,7 @@ import net.minecraft.nbt.NBTTagCompound;
 /**
  * Created by brandon3055 on 12/06/2017.
  */
-public class ManagedShort extends AbstractManagedData {
+public class ManagedShort extends AbstractManagedData implements ICompactData {
 
     public short value;
     private short lastTickValue;
@@ -16,6 +16,20 @@ public class ManagedShort extends AbstractManagedData {
         this.value = this.lastTickValue = (short) value;
     }
 
+    public short get() {
+        return value;
+    }
+
+    /**
+     * Sets the value and marks this data dirty if the value has changed.
+     */
+    public void set(short value) {
+        if (this.value != value) {
+            this.value = value;
+            markDirty();
+        }
+    }
+
     @Override
     public boolean detectChanges() {
         if (value != lastTickValue) {
@@ -35,6 +49,26 @@ public class ManagedShort extends AbstractManagedData {
         value = input.readShort();
     }
 
+    @Override
+    public int componentCount() {
+        return 1;
+    }
+
+    @Override
+    public double getComponent(int component) {
+        return value;
+    }
+
+    @Override
+    public long encodeComponent(int component, double precision) {
+        return value;
+    }
+
+    @Override
+    public void decodeComponent(int component, long value, double precision) {
+        this.value = (short) value;
+    }
+
     @Override
     public void toNBT(NBTTagCompound compound) {
         compound.setShort(name, value);
@@ -23,6 +23,21 @@ public class ManagedStack extends AbstractManagedData {
         this.lastTickValue = value.copy();
     }
 
+    @Nonnull
+    public ItemStack get() {
+        return value;
+    }
+
+    /**
+     * Sets the value and marks this data dirty.
+     */
+    public void set(@Nonnull ItemStack value) {
+        if (this.value != value) {
+            this.value = value;
+            markDirty();
+        }
+    }
+
     @Override
     public boolean detectChanges() {
         if (value != lastTickValue) {
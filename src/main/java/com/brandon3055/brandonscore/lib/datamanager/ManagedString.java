@@ -18,6 +18,20 @@ public class ManagedString extends AbstractManagedData {
         this.value = this.lastTickValue = value;
     }
 
+    public String get() {
+        return value;
+    }
+
+    /**
+     * Sets the value and marks this data dirty if the value has changed.
+     */
+    public void set(@Nonnull String value) {
+        if (!this.value.equals(value)) {
+            this.value = value;
+            markDirty();
+        }
+    }
+
     @Override
     public boolean detectChanges() {
         if (!value.equals(lastTickValue)) {
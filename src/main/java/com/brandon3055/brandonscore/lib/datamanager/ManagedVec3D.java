@@ -12,10 +12,11 @@ import javax.annotation.Nonnull;
 /**
  * Created by brandon3055 on 12/06/2017.
  */
-public class ManagedVec3D extends AbstractManagedData {
+public class ManagedVec3D extends AbstractManagedData implements IInterpolatedData {
 
     public Vec3D vec;
     private Vec3D lastTickVec;
+    private Interpolator interpolator = null;
 
 
     public ManagedVec3D(@Nonnull Vec3D value) {
@@ -23,6 +24,31 @@ public class ManagedVec3D extends AbstractManagedData {
         this.lastTickVec = value.copy();
     }
 
+    public Vec3D get() {
+        return vec;
+    }
+
+    /**
+     * Copies the given vector into this data and marks this data dirty if the value has changed.
+     */
+    public void set(Vec3D value) {
+        if (!vec.equals(value)) {
+            vec.set(value);
+            markDirty();
+        }
+    }
+
+    /**
+     * Client side. Returns a new vector containing the smoothly interpolated value if interpolation is enabled for this data.
+     * Otherwise returns a copy of the current value. See {@link TileDataOptions#interpolate(int)}
+     */
+    public Vec3D getInterpolated(float partialTicks) {
+        if (interpolator == null) {
+            return vec.copy();
+        }
+        return new Vec3D(interpolator.get(0, partialTicks, vec.x), interpolator.get(1, partialTicks, vec.y), interpolator.get(2, partialTicks, vec.z));
+    }
+
     @Override
     public boolean detectChanges() {
         if (!vec.equals(lastTickVec)) {
@@ -47,6 +73,40 @@ public class ManagedVec3D extends AbstractManagedData {
         vec.z = input.readDouble();
     }
 
+    @Override
+    public int componentCount() {
+        return 3;
+    }
+
+    @Override
+    public double getComponent(int component) {
+        return component == 0 ? vec.x : component == 1 ? vec.y : vec.z;
+    }
+
+    @Override
+    public long encodeComponent(int component, double precision) {
+        return Math.round((component == 0 ? vec.x : component == 1 ? vec.y : vec.z) / precision);
+    }
+
+    @Override
+    public void decodeComponent(int component, long value, double precision) {
+        switch (component) {
+            case 0: vec.x = value * precision; break;
+            case 1: vec.y = value * precision; break;
+            case 2: vec.z = value * precision; break;
+        }
+    }
+
+    @Override
+    public void setInterpolator(Interpolator interpolator) {
+        this.interpolator = interpolator;
+    }
+
+    @Override
+    public Interpolator getInterpolator() {
+        return interpolator;
+    }
+
     @Override
     public void toNBT(NBTTagCompound compound) {
         NBTTagList list = new NBTTagList();
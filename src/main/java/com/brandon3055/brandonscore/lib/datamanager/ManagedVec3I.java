@@ -11,7 +11,7 @@ import net.minecraft.nbt.NBTTagList;
 /**
  * Created by brandon3055 on 12/06/2017.
  */
-public class ManagedVec3I extends AbstractManagedData {
+public class ManagedVec3I extends AbstractManagedData implements ICompactData {
 
     public Vec3I vec;
     private Vec3I lastTickVec;
@@ -21,6 +21,20 @@ public class ManagedVec3I extends AbstractManagedData {
         this.lastTickVec = value.copy();
     }
 
+    public Vec3I get() {
+        return vec;
+    }
+
+    /**
+     * Copies the given vector into this data and marks this data dirty if the value has changed.
+     */
+    public void set(Vec3I value) {
+        if (!vec.equals(value)) {
+            vec.set(value);
+            markDirty();
+        }
+    }
+
     @Override
     public boolean detectChanges() {
         if (!vec.equals(lastTickVec)) {
@@ -45,6 +59,30 @@ public class ManagedVec3I extends AbstractManagedData {
         vec.z = input.readInt();
     }
 
+    @Override
+    public int componentCount() {
+        return 3;
+    }
+
+    @Override
+    public double getComponent(int component) {
+        return component == 0 ? vec.x : component == 1 ? vec.y : vec.z;
+    }
+
+    @Override
+    public long encodeComponent(int component, double precision) {
+        return component == 0 ? vec.x : component == 1 ? vec.y : vec.z;
+    }
+
+    @Override
+    public void decodeComponent(int component, long value, double precision) {
+        switch (component) {
+            case 0: vec.x = (int) value; break;
+            case 1: vec.y = (int) value; break;
+            case 2: vec.z = (int) value; break;
+        }
+    }
+
     @Override
     public void toNBT(NBTTagCompound compound) {
         NBTTagList list = new NBTTagList();
@@ -0,0 +1,192 @@
+package com.brandon3055.brandonscore.lib.datamanager;
+
+import codechicken.lib.data.MCDataInput;
+import codechicken.lib.data.MCDataOutput;
+import net.minecraft.nbt.NBTBase;
+import net.minecraft.nbt.NBTTagCompound;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Computes structural patches between versions of an {@link NBTTagCompound}.
+ * <p>
+ * A snapshot of the compound is kept as a tree where child compounds are their own nodes and every other tag is a copy.
+ * Each call to {@link #update(NBTTagCompound)} walks the current compound against the snapshot. Unchanged tags are compared in place
+ * and only tags that changed are copied so the snapshot never has to be rebuilt. The paths that changed are accumulated
+ * in a patch tree until {@link #writePatch(MCDataOutput, NBTTagCompound)} is called.
+ * <p>
+ * The patch only records which keys changed. The values are read from the current compound when the patch is written
+ * so each op is an absolute "set key" or "remove key" and applying a patch to a newer compound is harmless.
+ * <p>
+ * Patch format: [op count] then for each op [key] [op] where op is one of<br>
+ * REMOVE<br>
+ * SET [compound containing the new tag as "v"]<br>
+ * PATCH [nested patch for a child compound]
+ */
+public class NBTDiff {
+
+    private static final byte REMOVE = 0;
+    private static final byte SET = 1;
+    private static final byte PATCH = 2;
+    /**
+     * Marks a key in the patch tree whose whole value needs to be sent.
+     */
+    private static final Object WHOLE = Boolean.TRUE;
+
+    private Node snapshot;
+    private Map<String, Object> pending = new HashMap<>();
+
+    public NBTDiff(NBTTagCompound initial) {
+        snapshot = Node.of(initial);
+    }
+
+    /**
+     * Compares the given compound to the snapshot, adds any differences to the pending patch and updates the snapshot.
+     *
+     * @return true if anything changed.
+     */
+    public boolean update(NBTTagCompound current) {
+        return diff(snapshot, current, pending);
+    }
+
+    public boolean hasPending() {
+        return !pending.isEmpty();
+    }
+
+    /**
+     * Discards the pending patch. Call after the full value has been sent.
+     */
+    public void clearPending() {
+        pending.clear();
+    }
+
+    /**
+     * Writes the pending patch using the values in the given compound then clears it.
+     */
+    public void writePatch(MCDataOutput output, NBTTagCompound current) {
+        writePatch(output, current, pending);
+        pending.clear();
+    }
+
+    /**
+     * Applies a patch written by {@link #writePatch(MCDataOutput, NBTTagCompound)} to the given compound in place.
+     */
+    public static void readPatch(MCDataInput input, NBTTagCompound target) {
+        int count = input.readVarInt();
+        for (int i = 0; i < count; i++) {
+            String key = input.readString();
+            byte op = input.readByte();
+            if (op == REMOVE) {
+                target.removeTag(key);
+            }
+            else if (op == SET) {
+                target.setTag(key, input.readNBTTagCompound().getTag("v"));
+            }
+            else {
+                NBTBase child = target.getTag(key);
+                if (!(child instanceof NBTTagCompound)) {
+                    //Can only happen if the client is out of sync. The patch still has to be read.
+                    target.setTag(key, child = new NBTTagCompound());
+                }
+                readPatch(input, (NBTTagCompound) child);
+            }
+        }
+    }
+
+    /**
+     * @param dirty the patch tree for this compound or null if the whole compound is already marked as changed.
+     */
+    private static boolean diff(Node node, NBTTagCompound current, Map<String, Object> dirty) {
+        boolean changed = false;
+        Iterator<String> removed = node.children.keySet().iterator();
+        while (removed.hasNext()) {
+            String key = removed.next();
+            if (!current.hasKey(key)) {
+                removed.remove();
+                mark(dirty, key);
+                changed = true;
+            }
+        }
+
+        for (String key : current.getKeySet()) {
+            NBTBase tag = current.getTag(key);
+            Node child = node.children.get(key);
+            if (child != null && child.children != null && tag instanceof NBTTagCompound) {
+                Map<String, Object> childDirty = null;
+                Object existing = dirty == null ? WHOLE : dirty.get(key);
+                if (existing != WHOLE) {
+                    //noinspection unchecked
+                    childDirty = existing == null ? new HashMap<>() : (Map<String, Object>) existing;
+                }
+                if (diff(child, (NBTTagCompound) tag, childDirty)) {
+                    changed = true;
+                    if (existing == null) {
+                        dirty.put(key, childDirty);
+                    }
+                }
+            }
+            else if (child == null || child.children != null || tag instanceof NBTTagCompound || !tag.equals(child.tag)) {
+                node.children.put(key, Node.of(tag));
+                mark(dirty, key);
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    private static void mark(Map<String, Object> dirty, String key) {
+        if (dirty != null) {
+            dirty.put(key, WHOLE);
+        }
+    }
+
+    private static void writePatch(MCDataOutput output, NBTTagCompound current, Map<String, Object> dirty) {
+        output.writeVarInt(dirty.size());
+        for (Map.Entry<String, Object> entry : dirty.entrySet()) {
+            String key = entry.getKey();
+            output.writeString(key);
+            NBTBase tag = current.getTag(key);
+            if (tag == null) {
+                output.writeByte(REMOVE);
+            }
+            else if (entry.getValue() != WHOLE && tag instanceof NBTTagCompound) {
+                output.writeByte(PATCH);
+                //noinspection unchecked
+                writePatch(output, (NBTTagCompound) tag, (Map<String, Object>) entry.getValue());
+            }
+            else {
+                output.writeByte(SET);
+                NBTTagCompound wrapper = new NBTTagCompound();
+                wrapper.setTag("v", tag);
+                output.writeNBTTagCompound(wrapper);
+            }
+        }
+    }
+
+    /**
+     * A snapshot of a single tag. Compounds store a node for each child, everything else stores a copy of the tag.
+     */
+    private static class Node {
+        private final Map<String, Node> children;
+        private final NBTBase tag;
+
+        private Node(Map<String, Node> children, NBTBase tag) {
+            this.children = children;
+            this.tag = tag;
+        }
+
+        private static Node of(NBTBase tag) {
+            if (tag instanceof NBTTagCompound) {
+                NBTTagCompound compound = (NBTTagCompound) tag;
+                Map<String, Node> children = new HashMap<>();
+                for (String key : compound.getKeySet()) {
+                    children.put(key, of(compound.getTag(key)));
+                }
+                return new Node(children, null);
+            }
+            return new Node(null, tag.copy());
+        }
+    }
+}
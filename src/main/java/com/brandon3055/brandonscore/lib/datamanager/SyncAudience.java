@@ -0,0 +1,24 @@
+package com.brandon3055.brandonscore.lib.datamanager;
+
+import com.brandon3055.brandonscore.inventory.ContainerBCBase;
+import net.minecraft.entity.player.EntityPlayerMP;
+import net.minecraft.tileentity.TileEntity;
+
+/**
+ * Decides which of the players watching a tile's chunk should receive a managed data field that is synchronized via the tile.
+ * See {@link TileDataOptions#syncAudience(SyncAudience)}
+ */
+public interface SyncAudience {
+
+    /**
+     * Players that currently have a {@link ContainerBCBase} for the tile open.
+     */
+    SyncAudience CONTAINER_VIEWERS = (tile, player) -> player.openContainer instanceof ContainerBCBase && ((ContainerBCBase) player.openContainer).tile == tile;
+
+    /**
+     * @param tile   the tile the data belongs to.
+     * @param player a player that is watching the tile's chunk.
+     * @return true if the player should receive updates for the data.
+     */
+    boolean isRelevant(TileEntity tile, EntityPlayerMP player);
+}
@@ -0,0 +1,155 @@
+package com.brandon3055.brandonscore.lib.datamanager;
+
+import codechicken.lib.data.MCDataOutput;
+import codechicken.lib.packet.PacketCustom;
+import com.brandon3055.brandonscore.BCConfig;
+import com.brandon3055.brandonscore.network.OutboundPacketScheduler;
+import com.brandon3055.brandonscore.network.OutboundPacketScheduler.Priority;
+import com.brandon3055.brandonscore.utils.LogHelperBC;
+import net.minecraft.entity.player.EntityPlayer;
+import net.minecraft.entity.player.EntityPlayerMP;
+import net.minecraft.network.Packet;
+import net.minecraft.server.management.PlayerChunkMap;
+import net.minecraft.tileentity.TileEntity;
+import net.minecraft.world.WorldServer;
+import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+import net.minecraftforge.fml.common.gameevent.TickEvent;
+import org.apache.logging.log4j.Level;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Builds data manager sync packets on a dedicated encoder thread. See the "asyncTileEncoding" config option.
+ * <p>
+ * The manager takes a snapshot of the data being sent on the server thread (see {@link TileDataManager#snapshotSyncData(java.util.BitSet, boolean)})
+ * and the snapshot is then written to the packet on the encoder thread. A single thread is used so packets are always built in the order they were
+ * submitted which the tile data stream relies on. Every data manager packet is sent through here while enabled so a forced sync can never
+ * overtake an older stream update.<br>
+ * The finished packets are sent from the server thread at the start of the next tick in the order they were submitted (waiting for the encoder
+ * if it has not finished). This keeps them in tick order with the vanilla packets sent by the server thread so a sync packet can not arrive
+ * before the block change or update tag that creates its tile.
+ */
+public class SyncEncoder {
+
+    private static ExecutorService executor = null;
+    private static final List<PendingPacket> pending = new ArrayList<>();
+
+    public static boolean isEnabled() {
+        return BCConfig.asyncTileEncoding;
+    }
+
+    /**
+     * Builds the packet and sends it to the given players. When async encoding is disabled the packet is built and sent immediately.
+     *
+     * @param builder builds the packet. When async encoding is enabled this is called on the encoder thread so it must only use snapshot data.
+     * @param tiles   the tiles whose data is in the packet. See {@link OutboundPacketScheduler#sendTileData(Packet, EntityPlayerMP, Priority, Collection)}
+     */
+    public static void send(Supplier<PacketCustom> builder, Collection<EntityPlayerMP> players, Priority priority, Collection<? extends TileEntity> tiles) {
+        if (players.isEmpty()) {
+            return;
+        }
+        if (!isEnabled()) {
+            //Async encoding may have just been disabled. Anything still pending must go first.
+            sendPending();
+            Packet<?> packet = builder.get().toPacket();
+            players.forEach(player -> OutboundPacketScheduler.sendTileData(packet, player, priority, tiles));
+            return;
+        }
+
+        Future<Packet<?>> packet = getExecutor().submit(() -> builder.get().toPacket());
+        pending.add(new PendingPacket(packet, new ArrayList<>(players), priority, tiles));
+    }
+
+    @SubscribeEvent
+    public void serverTick(TickEvent.ServerTickEvent event) {
+        if (event.phase == TickEvent.Phase.START) {
+            sendPending();
+        }
+    }
+
+    /**
+     * Sends every packet submitted so far in the order it was submitted. Waits for the encoder to finish any that have not been built yet.
+     */
+    private static void sendPending() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<PendingPacket> packets = new ArrayList<>(pending);
+        pending.clear();
+        for (PendingPacket entry : packets) {
+            Packet<?> packet;
+            try {
+                packet = entry.packet.get();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            catch (ExecutionException e) {
+                LogHelperBC.log(Level.ERROR, "An error occurred while encoding a tile sync packet", e.getCause());
+                continue;
+            }
+            entry.players.forEach(player -> OutboundPacketScheduler.sendTileData(packet, player, entry.priority, entry.tiles));
+        }
+    }
+
+    /**
+     * @return every player watching the chunk the given tile is in.
+     */
+    public static List<EntityPlayerMP> getWatchers(TileEntity tile) {
+        List<EntityPlayerMP> watchers = new ArrayList<>();
+        if (!(tile.getWorld() instanceof WorldServer)) {
+            return watchers;
+        }
+        WorldServer world = (WorldServer) tile.getWorld();
+        PlayerChunkMap chunkMap = world.getPlayerChunkMap();
+        int chunkX = tile.getPos().getX() >> 4;
+        int chunkZ = tile.getPos().getZ() >> 4;
+        for (EntityPlayer player : world.playerEntities) {
+            if (player instanceof EntityPlayerMP && chunkMap.isPlayerWatchingChunk((EntityPlayerMP) player, chunkX, chunkZ)) {
+                watchers.add((EntityPlayerMP) player);
+            }
+        }
+        return watchers;
+    }
+
+    /**
+     * @return a writer that writes the given pre encoded bytes.
+     */
+    public static Consumer<MCDataOutput> bytes(byte[] bytes) {
+        return output -> output.writeArray(bytes);
+    }
+
+    private static class PendingPacket {
+        private final Future<Packet<?>> packet;
+        private final List<EntityPlayerMP> players;
+        private final Priority priority;
+        private final Collection<? extends TileEntity> tiles;
+
+        private PendingPacket(Future<Packet<?>> packet, List<EntityPlayerMP> players, Priority priority, Collection<? extends TileEntity> tiles) {
+            this.packet = packet;
+            this.players = players;
+            this.priority = priority;
+            this.tiles = tiles;
+        }
+    }
+
+    private static synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            executor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "BrandonsCore Sync Encoder");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return executor;
+    }
+}
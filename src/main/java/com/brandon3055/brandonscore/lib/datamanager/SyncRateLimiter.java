@@ -0,0 +1,82 @@
+package com.brandon3055.brandonscore.lib.datamanager;
+
+/**
+ * Holds back changes to a single managed data object so that it is synchronized at a limited rate.
+ * Changes are never dropped. The latest value is always released once the limits allow it so the client can never be left with a stale value.
+ * <p>
+ * See {@link TileDataOptions#syncInterval(int)}, {@link TileDataOptions#syncThreshold(double)} and {@link TileDataOptions#syncOnSettle()}
+ */
+public class SyncRateLimiter {
+
+    /**
+     * The maximum number of ticks a change can be held back for by the threshold or settle logic.
+     */
+    public static final int MAX_HOLD_INTERVALS = 4;
+
+    public int interval = 1;
+    public double threshold = 0;
+    public boolean settle = false;
+
+    private long lastSyncTick = Long.MIN_VALUE / 2;
+    private long lastChangeTick = 0;
+    private long firstPendingTick = 0;
+    private boolean pending = false;
+    private double[] lastSynced = null;
+
+    /**
+     * Called when a change is detected in the data.
+     */
+    public void onChange(long tick) {
+        if (!pending) {
+            firstPendingTick = tick;
+            pending = true;
+        }
+        lastChangeTick = tick;
+    }
+
+    /**
+     * @return true if the pending change should be synchronized this tick.
+     */
+    public boolean shouldRelease(long tick, IManagedData data) {
+        if (!pending || tick - lastSyncTick < interval) {
+            return false;
+        }
+
+        boolean settled = tick - lastChangeTick >= interval;
+        boolean overdue = tick - firstPendingTick >= (long) Math.max(interval, 5) * MAX_HOLD_INTERVALS;
+        if (settle || isBelowThreshold(data)) {
+            return settled || overdue;
+        }
+        return true;
+    }
+
+    /**
+     * Called when the pending change has been released for synchronization.
+     */
+    public void onRelease(long tick, IManagedData data) {
+        pending = false;
+        lastSyncTick = tick;
+        if (threshold > 0 && data instanceof ICompactData) {
+            ICompactData compact = (ICompactData) data;
+            if (lastSynced == null) {
+                lastSynced = new double[compact.componentCount()];
+            }
+            for (int i = 0; i < lastSynced.length; i++) {
+                lastSynced[i] = compact.getComponent(i);
+            }
+        }
+    }
+
+    private boolean isBelowThreshold(IManagedData data) {
+        if (threshold <= 0 || lastSynced == null || !(data instanceof ICompactData)) {
+            return false;
+        }
+        ICompactData compact = (ICompactData) data;
+        for (int i = 0; i < lastSynced.length; i++) {
+            if (Math.abs(compact.getComponent(i) - lastSynced[i]) >= threshold) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -1,21 +1,50 @@
 package com.brandon3055.brandonscore.lib.datamanager;
 
 import codechicken.lib.data.MCDataInput;
+import codechicken.lib.data.MCDataInputWrapper;
+import codechicken.lib.data.MCDataOutput;
+import codechicken.lib.data.MCDataOutputWrapper;
 import codechicken.lib.packet.PacketCustom;
+import com.brandon3055.brandonscore.BCConfig;
 import com.brandon3055.brandonscore.BrandonsCore;
 import com.brandon3055.brandonscore.blocks.TileBCBase;
+import com.brandon3055.brandonscore.network.NetStats;
+import com.brandon3055.brandonscore.network.OutboundPacketScheduler;
+import com.brandon3055.brandonscore.network.OutboundPacketScheduler.Priority;
 import com.brandon3055.brandonscore.network.PacketDispatcher;
-import com.brandon3055.brandonscore.utils.DataUtils;
+import com.brandon3055.brandonscore.utils.LogHelperBC;
+import com.brandon3055.brandonscore.utils.ServerProfiler;
 import net.minecraft.block.state.IBlockState;
 import net.minecraft.entity.player.EntityPlayerMP;
 import net.minecraft.inventory.IContainerListener;
 import net.minecraft.nbt.NBTTagCompound;
 import net.minecraft.tileentity.TileEntity;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.WorldServer;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import static com.brandon3055.brandonscore.lib.datamanager.TileDataOptions.*;
+import static com.brandon3055.brandonscore.utils.DataUtils.readZigZag;
+import static com.brandon3055.brandonscore.utils.DataUtils.writeZigZag;
 
 /**
  * Created by brandon3055 on 12/06/2017.
@@ -23,8 +52,85 @@ import java.util.Map;
  */
 public class TileDataManager<T extends TileEntity & IDataManagerProvider> implements IDataManager {
 
-    protected LinkedList<IManagedData> managedDataList = new LinkedList<>();
-    protected Map<IManagedData, TileDataOptions> dataOptions = new HashMap<>();
+    private static final int AUDIENCE_CHECK_INTERVAL = 10;
+    private static final Map<Class<?>, Long> SCHEMA_CACHE = new ConcurrentHashMap<>();
+    private static final int PACKED_FORMAT = 1;
+    private static final String PROFILE_SYNC = "data_manager_sync";
+    private static final String PROFILE_CONTAINER_SYNC = "data_manager_container_sync";
+
+    /**
+     * All managed data indexed by network index. Only the first dataCount entries are valid.
+     */
+    protected IManagedData[] managedData = new IManagedData[8];
+    protected TileDataOptions[] dataOptions = new TileDataOptions[8];
+    /**
+     * The {@link TileDataOptions} flags for each data index packed into an int.
+     */
+    protected int[] dataFlags = new int[8];
+    protected int dataCount = 0;
+    protected Map<String, IManagedData> nameMap = new HashMap<>();
+    /**
+     * Incremented each time a change is detected in the field with the corresponding index.
+     * Sync targets compare these against the versions they last received to work out what they are missing.
+     */
+    protected int[] dataVersions = new int[8];
+    /**
+     * Incremented every time any field changes. Allows listeners that are already up to date to be skipped without a full compare.
+     */
+    protected int modCount = 0;
+    protected BitSet tilePending = new BitSet();
+    protected boolean queuedForSync = false;
+    /**
+     * Data that has been marked dirty via its setter since the last poll.
+     */
+    protected BitSet dirtyData = new BitSet();
+    /**
+     * Changes to rate limited data that are being held back by the data's {@link SyncRateLimiter}
+     */
+    protected BitSet heldChanges = new BitSet();
+    /**
+     * The synchronized data that still needs to be polled for changes every tick. (Anything not flagged syncOnSet)
+     * Built on the first poll after all data has been registered.
+     */
+    protected int[] pollIndexes = null;
+    /**
+     * Data that is saved but not synchronized. This is only polled for changes when the tile is about to be saved.
+     */
+    protected int[] savePollIndexes = null;
+    /**
+     * True if any data that is saved to the tile has changed since the last save.
+     */
+    protected boolean saveDirty = true;
+    /**
+     * True if the chunk has been flagged for saving since the last save. Avoids flagging the chunk every time data changes.
+     */
+    protected boolean chunkMarked = false;
+    /**
+     * Set when data is loaded from NBT. The change caches still hold the values from before the load so the first poll after loading
+     * will report changes that do not need to be saved.
+     */
+    protected boolean loadPending = false;
+    private NBTTagCompound lastSaveTag = null;
+    protected boolean packedItemData = false;
+    /**
+     * The tile synced data that has a restricted audience, grouped by range and audience so each recipient set is only built once.
+     * Built on first use after all data has been registered.
+     */
+    protected AudienceGroup[] audienceGroups = null;
+    /**
+     * The world time of the next audience check. Audiences are checked periodically (even if nothing changed) so players
+     * that move into range receive the current value.
+     */
+    protected long nextAudienceCheck = 0;
+    protected Map<IContainerListener, ListenerShadow> listenerShadows = new WeakHashMap<>();
+    /**
+     * Server side. Players whose client reported a different schema for this tile. These players are sent name keyed NBT instead of sync packets.
+     */
+    protected Set<EntityPlayerMP> fallbackPlayers = Collections.newSetFromMap(new WeakHashMap<>());
+    /**
+     * Client side. Set when the server's schema fingerprint does not match ours. Sync packets can not be read safely while this is true.
+     */
+    protected boolean schemaMismatch = false;
     public final T tile;
 
     public TileDataManager(T tile) {
@@ -42,18 +148,45 @@ public class TileDataManager<T extends TileEntity & IDataManagerProvider> implem
      * @return Returns a generified data options class. Set the flags you need then call finish to get your shiny new ManagedData object!
      */
     public <M extends IManagedData> TileDataOptions<M> register(String name, M managedData) {
+        int index = dataCount++;
+        if (index >= this.managedData.length) {
+            int newLength = this.managedData.length * 2;
+            this.managedData = Arrays.copyOf(this.managedData, newLength);
+            dataOptions = Arrays.copyOf(dataOptions, newLength);
+            dataFlags = Arrays.copyOf(dataFlags, newLength);
+            dataVersions = Arrays.copyOf(dataVersions, newLength);
+        }
         managedData.setName(name);
-        managedData.setIndex(managedDataList.size());
-        managedDataList.add(managedData);
-        TileDataOptions<M> ops = new TileDataOptions<>(managedData);
-        dataOptions.put(managedData, ops);
+        managedData.setDataManager(this);
+        managedData.setIndex(index);
+        this.managedData[index] = managedData;
+        nameMap.put(name, managedData);
+        TileDataOptions<M> ops = new TileDataOptions<>(this, index, managedData);
+        dataOptions[index] = ops;
+        pollIndexes = null;
+        audienceGroups = null;
         return ops;
     }
 //    public ManagedInt anInt = register("anInt", new ManagedInt(0)).saveToTile().saveToItem().syncViaTile().finish();
 
+    /**
+     * Called by {@link TileDataOptions} when its flags are modified.
+     */
+    protected void updateFlags(int index, int flags) {
+        dataFlags[index] = flags;
+        pollIndexes = null;
+        audienceGroups = null;
+    }
+
+    protected boolean hasFlag(int index, int flag) {
+        return (dataFlags[index] & flag) != 0;
+    }
+
     /**
      * You can store IManagedData instances however you want in your manager implementation
      * As long as you are able to retrieve them as a collection and supply them via this method.
+     * <p>
+     * All fields that changed this tick are gathered into a single packet. See {@link #createSyncPacket(BitSet)}
      *
      * @return All data objects stored in the manager as a collection.
      */
@@ -62,18 +195,278 @@ public class TileDataManager<T extends TileEntity & IDataManagerProvider> implem
         if (tile.getWorld().isRemote) {
             return;
         }
-        for (IManagedData data : managedDataList) {
-            if (dataOptions.get(data).syncViaTile && data.detectChanges()) {
-                PacketCustom syncPacket = createSyncPacket();
-                syncPacket.writeByte((byte) data.getIndex());
-                data.toBytes(syncPacket);
-                syncPacket.sendToChunk(tile);
+        long start = ServerProfiler.start();
+        pollChanges();
+        if (queuedForSync) {
+            ServerProfiler.recordSection(PROFILE_SYNC, start);
+            return;
+        }
+
+        //Data with a restricted audience or players that need the nbt fallback always go through the scheduler because that is where recipients are resolved.
+        boolean hasAudience = getAudienceGroups().length > 0;
+        boolean audienceCheck = hasAudience && tile.getWorld().getTotalWorldTime() >= nextAudienceCheck;
+        if (!tilePending.isEmpty() || audienceCheck) {
+            if (BCConfig.aggregateTileSync || hasAudience || !fallbackPlayers.isEmpty()) {
+                queuedForSync = true;
+                TileSyncScheduler.queue(this);
+            }
+            else {
+                sendSyncToChunk(tilePending, true);
+                tilePending.clear();
+            }
+        }
+        ServerProfiler.recordSection(PROFILE_SYNC, start);
+    }
+
+    /**
+     * @return the pending tile sync data that goes to everyone watching the chunk or null if there is none.
+     */
+    protected BitSet getSharedPending() {
+        BitSet fields = null;
+        for (int i = tilePending.nextSetBit(0); i >= 0; i = tilePending.nextSetBit(i + 1)) {
+            if (!hasFlag(i, AUDIENCE)) {
+                if (fields == null) {
+                    fields = new BitSet(dataCount);
+                }
+                fields.set(i);
+            }
+        }
+        return fields;
+    }
+
+    /**
+     * Called by the {@link TileSyncScheduler} with the players watching this tile's chunk to rebuild the recipient set of each audience group.
+     */
+    protected void updateAudience(Collection<EntityPlayerMP> watchers) {
+        for (AudienceGroup group : getAudienceGroups()) {
+            Set<EntityPlayerMP> recipients = watchers.isEmpty() ? Collections.emptySet() : new HashSet<>();
+            for (EntityPlayerMP player : watchers) {
+                if (group.isRelevant(tile, player)) {
+                    recipients.add(player);
+                }
+            }
+            group.joined = null;
+            for (EntityPlayerMP player : recipients) {
+                if (!group.recipients.contains(player)) {
+                    if (group.joined == null) {
+                        group.joined = new HashSet<>();
+                    }
+                    group.joined.add(player);
+                }
+            }
+            group.recipients = recipients;
+        }
+    }
+
+    /**
+     * @return the restricted audience data that should be sent to the given player this tick or null if there is none.
+     * Players that have just joined an audience get every field in that audience, everyone else just gets the changes.
+     */
+    protected BitSet getAudiencePending(EntityPlayerMP player) {
+        BitSet fields = null;
+        for (AudienceGroup group : getAudienceGroups()) {
+            if (!group.recipients.contains(player)) {
+                continue;
+            }
+            boolean joined = group.joined != null && group.joined.contains(player);
+            for (int i = group.fields.nextSetBit(0); i >= 0; i = group.fields.nextSetBit(i + 1)) {
+                if (joined || tilePending.get(i)) {
+                    if (fields == null) {
+                        fields = new BitSet(dataCount);
+                    }
+                    fields.set(i);
+                }
+            }
+        }
+        return fields;
+    }
+
+    /**
+     * Called by the {@link TileSyncScheduler} once the queued sync data has been sent (or discarded).
+     */
+    protected void clearQueuedSync() {
+        tilePending.clear();
+        queuedForSync = false;
+        nextAudienceCheck = tile.getWorld().getTotalWorldTime() + AUDIENCE_CHECK_INTERVAL;
+    }
+
+    protected AudienceGroup[] getAudienceGroups() {
+        if (audienceGroups == null) {
+            List<AudienceGroup> groups = new ArrayList<>();
+            for (int i = 0; i < dataCount; i++) {
+                if (!hasFlag(i, SYNC_TILE) || !hasFlag(i, AUDIENCE)) {
+                    continue;
+                }
+                TileDataOptions ops = dataOptions[i];
+                AudienceGroup group = groups.stream().filter(g -> g.range == ops.syncRange && g.audience == ops.audience).findFirst().orElse(null);
+                if (group == null) {
+                    groups.add(group = new AudienceGroup(ops.syncRange, ops.audience));
+                }
+                group.fields.set(i);
+            }
+            audienceGroups = groups.toArray(new AudienceGroup[0]);
+        }
+        return audienceGroups;
+    }
+
+    /**
+     * Forgets who has received the restricted audience data so everyone currently in range is sent it again at the next audience check.
+     */
+    protected void resetAudience() {
+        for (AudienceGroup group : getAudienceGroups()) {
+            group.recipients = Collections.emptySet();
+        }
+        nextAudienceCheck = 0;
+    }
+
+    /**
+     * Collects all changes since the last poll and bumps the version of each field that changed.
+     * Fields that were marked dirty via their setter are picked up from the dirty set so the cost is O(changed fields).
+     * Fields that are not flagged syncOnSet are still polled every tick for backwards compatibility with code that writes directly to the value field.
+     * This is the only place detectChanges is called so tile and container sync can not steal changes from each other.
+     * Safe to call multiple times per tick.
+     */
+    protected void pollChanges() {
+        if (pollIndexes == null) {
+            int[] indexes = new int[dataCount];
+            int[] saveIndexes = new int[dataCount];
+            int count = 0;
+            int saveCount = 0;
+            for (int i = 0; i < dataCount; i++) {
+                if (hasFlag(i, SYNC_ON_SET)) {
+                    continue;
+                }
+                if (hasFlag(i, SYNC_TILE | SYNC_CONTAINER)) {
+                    indexes[count++] = i;
+                }
+                else if (hasFlag(i, SAVE_NBT)) {
+                    saveIndexes[saveCount++] = i;
+                }
+            }
+            pollIndexes = Arrays.copyOf(indexes, count);
+            savePollIndexes = Arrays.copyOf(saveIndexes, saveCount);
+        }
+
+        for (int i = dirtyData.nextSetBit(0); i >= 0; i = dirtyData.nextSetBit(i + 1)) {
+            //Update the data's own change cache so it is not reported again by the poll.
+            managedData[i].detectChanges();
+            onDataChanged(i);
+        }
+        dirtyData.clear();
+
+        for (int index : pollIndexes) {
+            if (managedData[index].detectChanges()) {
+                onDataChanged(index);
+            }
+        }
+
+        if (!heldChanges.isEmpty()) {
+            long tick = tile.getWorld().getTotalWorldTime();
+            for (int i = heldChanges.nextSetBit(0); i >= 0; i = heldChanges.nextSetBit(i + 1)) {
+                SyncRateLimiter limiter = dataOptions[i].rateLimiter;
+                if (limiter.shouldRelease(tick, managedData[i])) {
+                    limiter.onRelease(tick, managedData[i]);
+                    heldChanges.clear(i);
+                    publishChange(i);
+                }
+            }
+        }
+
+        if (loadPending) {
+            //Brings the save only data's change cache up to date with the loaded values. From here on every change flags the chunk again.
+            for (int index : savePollIndexes) {
+                managedData[index].detectChanges();
+            }
+            loadPending = false;
+            chunkMarked = false;
+        }
+    }
+
+    protected void onDataChanged(int index) {
+        if (hasFlag(index, SAVE_NBT)) {
+            markSaveDirty();
+        }
+        if (hasFlag(index, RATE_LIMITED)) {
+            dataOptions[index].rateLimiter.onChange(tile.getWorld().getTotalWorldTime());
+            heldChanges.set(index);
+        }
+        else {
+            publishChange(index);
+        }
+    }
+
+    /**
+     * Marks a change as ready to be sent to the tile and container sync targets.
+     */
+    protected void publishChange(int index) {
+        if (hasFlag(index, SYNC_TILE | SYNC_CONTAINER)) {
+            dataVersions[index]++;
+            modCount++;
+            if (hasFlag(index, SYNC_TILE)) {
+                tilePending.set(index);
+            }
+        }
+    }
+
+    @Override
+    public void markDirty(IManagedData data) {
+        dirtyData.set(data.getIndex());
+    }
+
+    /**
+     * Flags the tile as needing to be saved and flags the chunk for saving (once per save).
+     * Call this if you are using {@link TileBCBase#setSaveOnChangeOnly()} and you change data that is saved via writeExtraNBT.
+     */
+    public void markSaveDirty() {
+        saveDirty = true;
+        if (!chunkMarked && tile.hasWorld() && !tile.getWorld().isRemote) {
+            chunkMarked = true;
+            tile.getWorld().markChunkDirty(tile.getPos(), tile);
+        }
+    }
+
+    /**
+     * This is cheap enough to call from {@link TileBCBase#markDirty()}. It does not poll for changes.
+     * Saved data is flagged when a change is picked up by the tick poll or when its setter marks it dirty.
+     *
+     * @return true if any data that is saved to the tile has changed since the last save.
+     */
+    public boolean isSaveDirty() {
+        if (saveDirty || lastSaveTag == null) {
+            return true;
+        }
+        for (int i = dirtyData.nextSetBit(0); i >= 0; i = dirtyData.nextSetBit(i + 1)) {
+            if (hasFlag(i, SAVE_NBT)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks all saved data for changes. Data that is saved but not synchronized is only checked here when the tile is saved.
+     */
+    protected void pollSaveData() {
+        if (tile.hasWorld() && !tile.getWorld().isRemote) {
+            //ManagedNBT only checks for unmarked in place changes periodically. Make sure they are not missed by the save.
+            for (int i = 0; i < dataCount; i++) {
+                if (hasFlag(i, SAVE_NBT) && managedData[i] instanceof ManagedNBT) {
+                    ((ManagedNBT) managedData[i]).requestDiff();
+                }
+            }
+            pollChanges();
+            for (int index : savePollIndexes) {
+                if (managedData[index].detectChanges()) {
+                    onDataChanged(index);
+                }
             }
         }
     }
 
     /**
      * This method is called each tick by {@link com.brandon3055.brandonscore.inventory.ContainerBCBase} to sent updates to container listeners.
+     * Each listener has its own shadow copy of the field versions it has received so every listener gets exactly the changes it has not seen.
+     * Listeners that are missing the same set of changes share a single packet.
      *
      * @param listeners The list of container listeners.
      */
@@ -81,15 +474,54 @@ public class TileDataManager<T extends TileEntity & IDataManagerProvider> implem
         if (tile.getWorld().isRemote) {
             return;
         }
-        for (IManagedData data : managedDataList) {
-            if (dataOptions.get(data).syncViaContainer && data.detectChanges()) {
-                PacketCustom syncPacket = createSyncPacket();
-                syncPacket.writeByte((byte) data.getIndex());
-                data.toBytes(syncPacket);
-                syncPacket.sendToChunk(tile);
-                DataUtils.forEachMatch(listeners, p -> p instanceof EntityPlayerMP, p -> syncPacket.sendToPlayer((EntityPlayerMP) p));
+        long start = ServerProfiler.start();
+        pollChanges();
+        Map<BitSet, List<EntityPlayerMP>> recipients = null;
+        for (IContainerListener listener : listeners) {
+            if (!(listener instanceof EntityPlayerMP)) {
+                continue;
+            }
+            ListenerShadow shadow = listenerShadows.computeIfAbsent(listener, l -> new ListenerShadow(dataCount));
+            if (shadow.modCount == modCount) {
+                continue;
+            }
+
+            BitSet delta = null;
+            for (int index = 0; index < dataCount; index++) {
+                if (hasFlag(index, SYNC_CONTAINER) && shadow.versions[index] != dataVersions[index]) {
+                    if (delta == null) {
+                        delta = new BitSet(dataCount);
+                    }
+                    delta.set(index);
+                    shadow.versions[index] = dataVersions[index];
+                }
+            }
+            shadow.modCount = modCount;
+
+            if (delta != null) {
+                if (fallbackPlayers.contains(listener)) {
+                    sendFallback((EntityPlayerMP) listener, delta);
+                    continue;
+                }
+                if (recipients == null) {
+                    recipients = new HashMap<>();
+                }
+                recipients.computeIfAbsent(delta, d -> new ArrayList<>()).add((EntityPlayerMP) listener);
             }
         }
+
+        //Listeners that need the same data share a packet.
+        if (recipients != null) {
+            recipients.forEach((fields, players) -> sendSync(fields, false, players, Priority.GUI));
+        }
+        ServerProfiler.recordSection(PROFILE_CONTAINER_SYNC, start);
+    }
+
+    /**
+     * Should be called when a listener is removed from a container so its shadow state can be discarded.
+     */
+    public void removeListener(IContainerListener listener) {
+        listenerShadows.remove(listener);
     }
 
     /**
@@ -101,52 +533,352 @@ public class TileDataManager<T extends TileEntity & IDataManagerProvider> implem
         if (tile.getWorld().isRemote) {
             return;
         }
-        for (IManagedData data : managedDataList) {
-            if (dataOptions.get(data).syncViaContainer) {
-                PacketCustom syncPacket = createSyncPacket();
-                syncPacket.writeByte((byte) data.getIndex());
-                data.toBytes(syncPacket);
-                DataUtils.forEachMatch(listeners, p -> p instanceof EntityPlayerMP, p -> syncPacket.sendToPlayer((EntityPlayerMP) p));
-            }
-        }
+        listeners.forEach(listenerShadows::remove);
+        detectAndSendChangesToListeners(listeners);
     }
 
     public void forceSync() {
         if (tile.getWorld().isRemote) {
             return;
         }
-        for (IManagedData data : managedDataList) {
-            if (dataOptions.get(data).syncViaTile) {
-                PacketCustom syncPacket = createSyncPacket();
-                syncPacket.writeByte((byte) data.getIndex());
-                data.toBytes(syncPacket);
-                syncPacket.sendToChunk(tile);
-            }
+        pollChanges();
+        BitSet fields = getMatching(SYNC_TILE);
+        fields.andNot(getMatching(AUDIENCE));
+        if (!fields.isEmpty()) {
+            sendSyncToChunk(fields, false);
+            fallbackPlayers.removeIf(player -> !isWatching(player));
+            fallbackPlayers.forEach(player -> sendFallback(player, fields));
         }
+        tilePending.andNot(fields);
+        resetAudience();
     }
 
     public void forcePlayerSync(EntityPlayerMP player) {
         if (tile.getWorld().isRemote) {
             return;
         }
-        for (IManagedData data : managedDataList) {
-            if (dataOptions.get(data).syncViaContainer) {
-                PacketCustom syncPacket = createSyncPacket();
-                syncPacket.writeByte((byte) data.getIndex());
-                data.toBytes(syncPacket);
-                syncPacket.sendToPlayer(player);
+        pollChanges();
+        BitSet fields = getMatching(SYNC_CONTAINER);
+        if (!fields.isEmpty()) {
+            if (fallbackPlayers.contains(player)) {
+                sendFallback(player, fields);
+            }
+            else {
+                sendSync(fields, false, Collections.singletonList(player), Priority.GUI);
             }
         }
+        ListenerShadow shadow = new ListenerShadow(dataCount);
+        System.arraycopy(dataVersions, 0, shadow.versions, 0, shadow.versions.length);
+        shadow.modCount = modCount;
+        listenerShadows.put(player, shadow);
     }
 
     public void forceSync(IManagedData data) {
         if (tile.getWorld().isRemote) {
             return;
         }
-        PacketCustom syncPacket = createSyncPacket();
-        syncPacket.writeByte((byte) data.getIndex());
-        data.toBytes(syncPacket);
-        syncPacket.sendToChunk(tile);
+        if (hasFlag(data.getIndex(), AUDIENCE)) {
+            resetAudience();
+            return;
+        }
+        BitSet fields = new BitSet(dataCount);
+        fields.set(data.getIndex());
+        sendSyncToChunk(fields, false);
+        fallbackPlayers.removeIf(player -> !isWatching(player));
+        fallbackPlayers.forEach(player -> sendFallback(player, fields));
+    }
+
+    /**
+     * Sends the given fields to the player as name keyed NBT. Used for players whose client has a different schema for this tile.
+     */
+    protected void sendFallback(EntityPlayerMP player, BitSet fields) {
+        NBTTagCompound compound = new NBTTagCompound();
+        for (int i = fields.nextSetBit(0); i >= 0 && i < dataCount; i = fields.nextSetBit(i + 1)) {
+            managedData[i].toNBT(compound);
+        }
+        PacketCustom packet = new PacketCustom(BrandonsCore.NET_CHANNEL, PacketDispatcher.C_TILE_DATA_NBT);
+        packet.writePos(tile.getPos());
+        packet.writeNBTTagCompound(compound);
+        OutboundPacketScheduler.sendTileData(packet.toPacket(), player, Priority.TILE, Collections.singletonList(tile));
+    }
+
+    /**
+     * Called when a client reports that its schema for this tile does not match. From now on that player will be sent
+     * name keyed NBT rather than sync packets. The player is immediately sent the current value of everything it would normally receive.
+     * Reports are ignored unless the player is watching the tile's chunk and repeat reports are ignored.
+     * Data with a restricted audience is not sent here. It is sent by the next audience check if the player is part of the audience.
+     */
+    public void onSchemaMismatch(EntityPlayerMP player) {
+        if (!isWatching(player) || !fallbackPlayers.add(player)) {
+            return;
+        }
+        LogHelperBC.warn("Client " + player.getName() + " has a different managed data schema for " + tile.getClass().getName() + " at " + tile.getPos() + ". Falling back to NBT sync for this player.");
+        BitSet fields = getMatching(SYNC_TILE);
+        fields.andNot(getMatching(AUDIENCE));
+        if (listenerShadows.containsKey(player)) {
+            fields.or(getMatching(SYNC_CONTAINER));
+        }
+        sendFallback(player, fields);
+
+        //The player could not read the audience data it was sent so it needs to rejoin each audience it is part of.
+        for (AudienceGroup group : getAudienceGroups()) {
+            if (group.recipients.contains(player)) {
+                group.recipients = new HashSet<>(group.recipients);
+                group.recipients.remove(player);
+                nextAudienceCheck = 0;
+            }
+        }
+    }
+
+    /**
+     * Removes players that are no longer watching the tile's chunk from the NBT fallback.
+     * If they start watching again their client will report the mismatch again when it receives the update tag.
+     */
+    protected void retainFallbackPlayers(Collection<EntityPlayerMP> watchers) {
+        if (!fallbackPlayers.isEmpty()) {
+            fallbackPlayers.retainAll(watchers);
+        }
+    }
+
+    protected boolean isWatching(EntityPlayerMP player) {
+        if (!(tile.getWorld() instanceof WorldServer) || player.world != tile.getWorld()) {
+            return false;
+        }
+        BlockPos pos = tile.getPos();
+        return ((WorldServer) tile.getWorld()).getPlayerChunkMap().isPlayerWatchingChunk(player, pos.getX() >> 4, pos.getZ() >> 4);
+    }
+
+    /**
+     * Client side. Applies name keyed data sent by {@link #sendFallback(EntityPlayerMP, BitSet)}
+     */
+    public void receiveFallbackData(NBTTagCompound compound) {
+        boolean triggerUpdate = false;
+        for (int i = 0; i < dataCount; i++) {
+            if (compound.hasKey(managedData[i].getName())) {
+                managedData[i].fromNBT(compound);
+                resetInterpolation(i);
+                triggerUpdate |= hasFlag(i, TRIGGER_UPDATE);
+            }
+        }
+        if (triggerUpdate) {
+            IBlockState state = tile.getWorld().getBlockState(tile.getPos());
+            tile.getWorld().notifyBlockUpdate(tile.getPos(), state, state, 3);
+        }
+    }
+
+    /**
+     * The schema fingerprint is a hash of the name, type and order of every registered field. It is sent to the client in the tile's
+     * update tag so the client can detect when its registration does not match the server (usually a mod version mismatch)
+     * because sync packets identify fields by index.
+     * Computed once per tile class so every instance of a class must register the same data.
+     */
+    public long getSchemaFingerprint() {
+        return SCHEMA_CACHE.computeIfAbsent(tile.getClass(), c -> {
+            //64 bit FNV-1a
+            long hash = 0xcbf29ce484222325L;
+            for (int i = 0; i < dataCount; i++) {
+                String entry = managedData[i].getName() + ":" + managedData[i].getClass().getName() + ";";
+                for (int j = 0; j < entry.length(); j++) {
+                    hash ^= entry.charAt(j);
+                    hash *= 0x100000001b3L;
+                }
+            }
+            return hash;
+        });
+    }
+
+    private void checkSchema(NBTTagCompound dataTag) {
+        if (!dataTag.hasKey("BCSchema") || !tile.hasWorld() || !tile.getWorld().isRemote) {
+            return;
+        }
+        boolean mismatch = dataTag.getLong("BCSchema") != getSchemaFingerprint();
+        if (mismatch && !schemaMismatch) {
+            LogHelperBC.warn("The server has a different managed data schema for " + tile.getClass().getName() + " at " + tile.getPos() + ". This is usually caused by a mod version mismatch. Requesting NBT sync.");
+            PacketCustom packet = new PacketCustom(BrandonsCore.NET_CHANNEL, PacketDispatcher.S_TILE_DATA_SCHEMA);
+            packet.writePos(tile.getPos());
+            packet.sendToServer();
+        }
+        schemaMismatch = mismatch;
+    }
+
+    /**
+     * @return true if the client has detected that its schema does not match the server. Sync packets for this tile must be discarded.
+     */
+    public boolean isSchemaMismatch() {
+        return schemaMismatch;
+    }
+
+    private BitSet getMatching(int flag) {
+        BitSet fields = new BitSet(dataCount);
+        for (int i = 0; i < dataCount; i++) {
+            if (hasFlag(i, flag)) {
+                fields.set(i);
+            }
+        }
+        return fields;
+    }
+
+    public PacketCustom createSyncPacket(BitSet fields) {
+        return createSyncPacket(fields, false);
+    }
+
+    /**
+     * Creates a sync packet containing every field in the given set.<br>
+     * Packet format: [pos] [sync data, see {@link #writeSyncData(MCDataOutput, BitSet, boolean)}]
+     *
+     * @param fields     the indexes of the fields to write to the packet.
+     * @param tileStream true if this packet is part of the tile update stream that every watcher receives. Only the tile stream may use
+     *                   the compact codec and {@link IDeltaData} deltas because their state must be the same for every recipient.
+     *                   Forced syncs are not part of the stream and always send full values.
+     */
+    public PacketCustom createSyncPacket(BitSet fields, boolean tileStream) {
+        PacketCustom packet = createSyncPacket();
+        writeSyncData(packet, fields, tileStream);
+        return packet;
+    }
+
+    /**
+     * Writes the sync data for the given fields. This is everything that follows the tile position in a sync packet
+     * and is what {@link #receiveSyncData(MCDataInput)} expects to read.<br>
+     * Format: [header varint: field count << 3 | timestamp flag << 2 | index list flag << 1 | tile stream flag] [field indexes]
+     * [world time if the timestamp flag is set] [field payloads in index order]<br>
+     * The timestamp is only included when one of the fields is interpolated. See {@link TileDataOptions#interpolate(int)}<br>
+     * The field indexes are either a bitmask with 1 bit per registered field or a list of varint gaps between indexes, whichever is smaller.
+     * So a tile with hundreds of fields that only changed one field this tick still only pays a couple of bytes.
+     */
+    public void writeSyncData(MCDataOutput output, BitSet fields, boolean tileStream) {
+        writeSyncHeader(output, fields, tileStream);
+        for (int i = fields.nextSetBit(0); i >= 0 && i < dataCount; i = fields.nextSetBit(i + 1)) {
+            writeField(output, i, tileStream);
+        }
+    }
+
+    /**
+     * Takes a snapshot of the sync data for the given fields that can be written by the {@link SyncEncoder} thread.
+     * The resulting writer writes exactly what {@link #writeSyncData(MCDataOutput, BitSet, boolean)} would have written at the time this was called.<br>
+     * Fields that provide an {@link IManagedData#snapshot()} are copied and serialized later. Everything else (including nbt, item stacks, the compact codec
+     * and {@link IDeltaData} deltas which update their own state when written) is serialized immediately into a byte buffer that is bulk copied into the packet.
+     */
+    public Consumer<MCDataOutput> snapshotSyncData(BitSet fields, boolean tileStream) {
+        List<Consumer<MCDataOutput>> writers = new ArrayList<>();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        MCDataOutput output = new MCDataOutputWrapper(new DataOutputStream(bytes));
+        writeSyncHeader(output, fields, tileStream);
+        for (int i = fields.nextSetBit(0); i >= 0 && i < dataCount; i = fields.nextSetBit(i + 1)) {
+            Consumer<MCDataOutput> snapshot = isStreamEncoded(i, tileStream) ? null : managedData[i].snapshot();
+            if (snapshot == null) {
+                writeField(output, i, tileStream);
+            }
+            else {
+                if (NetStats.isEnabled()) {
+                    snapshot = NetStats.measure(snapshot, tile.getClass(), managedData[i].getName());
+                }
+                writers.add(SyncEncoder.bytes(bytes.toByteArray()));
+                writers.add(snapshot);
+                bytes.reset();
+            }
+        }
+        writers.add(SyncEncoder.bytes(bytes.toByteArray()));
+        return packet -> writers.forEach(writer -> writer.accept(packet));
+    }
+
+    private void writeSyncHeader(MCDataOutput output, BitSet fields, boolean tileStream) {
+        NetStats.recordTileSync(tile.getClass());
+        int count = 0;
+        boolean timestamp = false;
+        for (int i = fields.nextSetBit(0); i >= 0 && i < dataCount; i = fields.nextSetBit(i + 1)) {
+            count++;
+            timestamp |= hasFlag(i, INTERPOLATE);
+        }
+        int maskBytes = (dataCount + 7) / 8;
+        boolean indexList = count < maskBytes;
+        output.writeVarInt(count << 3 | (timestamp ? 4 : 0) | (indexList ? 2 : 0) | (tileStream ? 1 : 0));
+        if (indexList) {
+            int next = 0;
+            for (int i = fields.nextSetBit(0); i >= 0 && i < dataCount; i = fields.nextSetBit(i + 1)) {
+                output.writeVarInt(i - next);
+                next = i + 1;
+            }
+        }
+        else {
+            for (int i = 0; i < maskBytes; i++) {
+                int b = 0;
+                for (int bit = 0; bit < 8; bit++) {
+                    if (fields.get((i << 3) + bit)) {
+                        b |= 1 << bit;
+                    }
+                }
+                output.writeByte((byte) b);
+            }
+        }
+        if (timestamp) {
+            writeZigZag(output, tile.getWorld().getTotalWorldTime());
+        }
+    }
+
+    /**
+     * @return true if this field is written using the compact codec or as a delta.
+     */
+    private boolean isStreamEncoded(int index, boolean tileStream) {
+        return tileStream && !hasFlag(index, AUDIENCE) && (hasFlag(index, COMPACT) || managedData[index] instanceof IDeltaData);
+    }
+
+    private void writeField(MCDataOutput output, int index, boolean tileStream) {
+        if (NetStats.isEnabled()) {
+            NetStats.measure(out -> encodeField(out, index, tileStream), tile.getClass(), managedData[index].getName()).accept(output);
+        }
+        else {
+            encodeField(output, index, tileStream);
+        }
+    }
+
+    private void encodeField(MCDataOutput output, int index, boolean tileStream) {
+        if (isStreamEncoded(index, tileStream)) {
+            if (hasFlag(index, COMPACT)) {
+                dataOptions[index].codec.write((ICompactData) managedData[index], output);
+            }
+            else {
+                ((IDeltaData) managedData[index]).writeDelta(output);
+            }
+        }
+        else {
+            managedData[index].toBytes(output);
+        }
+    }
+
+    /**
+     * Returns a builder for a sync packet containing the given fields that is safe to call from the {@link SyncEncoder} thread.
+     * See {@link #createSyncPacket(BitSet, boolean)} and {@link #snapshotSyncData(BitSet, boolean)}
+     */
+    public Supplier<PacketCustom> prepareSyncPacket(BitSet fields, boolean tileStream) {
+        BlockPos pos = tile.getPos();
+        Consumer<MCDataOutput> data = snapshotSyncData(fields, tileStream);
+        return () -> {
+            PacketCustom packet = new PacketCustom(BrandonsCore.NET_CHANNEL, PacketDispatcher.C_TILE_DATA_MANAGER);
+            packet.writePos(pos);
+            data.accept(packet);
+            return packet;
+        };
+    }
+
+    /**
+     * Sends the given fields to the given players. The packet is built on the {@link SyncEncoder} thread if async encoding is enabled.
+     */
+    private void sendSync(BitSet fields, boolean tileStream, Collection<EntityPlayerMP> players, Priority priority) {
+        Supplier<PacketCustom> builder = SyncEncoder.isEnabled() ? prepareSyncPacket(fields, tileStream) : () -> createSyncPacket(fields, tileStream);
+        SyncEncoder.send(builder, players, priority, Collections.singletonList(tile));
+    }
+
+    /**
+     * Sends the given fields to every player watching this tile's chunk.
+     */
+    private void sendSyncToChunk(BitSet fields, boolean tileStream) {
+        if (SyncEncoder.isEnabled()) {
+            SyncEncoder.send(prepareSyncPacket(fields, tileStream), SyncEncoder.getWatchers(tile), Priority.TILE, Collections.singletonList(tile));
+        }
+        else {
+            OutboundPacketScheduler.sendToChunk(createSyncPacket(fields, tileStream), tile, Priority.TILE);
+        }
     }
 
     @Override
@@ -158,40 +890,107 @@ public class TileDataManager<T extends TileEntity & IDataManagerProvider> implem
 
     @Override
     public void receiveSyncData(MCDataInput input) {
-        int index = input.readByte() & 0xFF;
-        IManagedData data = getDataByIndex(index);
-        if (data != null) {
-            data.fromBytes(input);
-            if (dataOptions.get(data).triggerUpdate) {
-                IBlockState state = tile.getWorld().getBlockState(tile.getPos());
-                tile.getWorld().notifyBlockUpdate(tile.getPos(), state, state, 3);
+        if (schemaMismatch) {
+            //There is no way to know what this data means. The server will switch us to nbt sync once it receives our mismatch report.
+            return;
+        }
+        int header = input.readVarInt();
+        boolean tileStream = (header & 1) != 0;
+        int count = header >>> 3;
+        BitSet fields = new BitSet(dataCount);
+        if ((header & 2) != 0) {
+            int next = 0;
+            for (int i = 0; i < count; i++) {
+                int index = next + input.readVarInt();
+                fields.set(index);
+                next = index + 1;
+            }
+        }
+        else {
+            int maskBytes = (dataCount + 7) / 8;
+            for (int i = 0; i < maskBytes; i++) {
+                int b = input.readByte() & 0xFF;
+                for (int bit = 0; b != 0; bit++, b >>>= 1) {
+                    if ((b & 1) != 0) {
+                        fields.set((i << 3) + bit);
+                    }
+                }
             }
         }
+
+        long timestamp = (header & 4) != 0 ? readZigZag(input) : -1;
+        boolean triggerUpdate = false;
+        for (int index = fields.nextSetBit(0); index >= 0; index = fields.nextSetBit(index + 1)) {
+            if (index >= dataCount) {
+                throw new IllegalStateException("Received sync data for unknown field index " + index + " in " + tile.getClass().getName() + " at " + tile.getPos());
+            }
+            if (tileStream && !hasFlag(index, AUDIENCE)) {
+                if (hasFlag(index, COMPACT)) {
+                    dataOptions[index].codec.read((ICompactData) managedData[index], input);
+                }
+                else if (managedData[index] instanceof IDeltaData) {
+                    ((IDeltaData) managedData[index]).readDelta(input);
+                }
+                else {
+                    managedData[index].fromBytes(input);
+                }
+            }
+            else {
+                managedData[index].fromBytes(input);
+            }
+            if (hasFlag(index, INTERPOLATE)) {
+                Interpolator interpolator = ((IInterpolatedData) managedData[index]).getInterpolator();
+                if (timestamp >= 0) {
+                    interpolator.addSample(timestamp, (ICompactData) managedData[index]);
+                }
+                else {
+                    interpolator.reset();
+                }
+            }
+            triggerUpdate |= hasFlag(index, TRIGGER_UPDATE);
+        }
+
+        if (triggerUpdate) {
+            IBlockState state = tile.getWorld().getBlockState(tile.getPos());
+            tile.getWorld().notifyBlockUpdate(tile.getPos(), state, state, 3);
+        }
     }
 
     @Override
     public IManagedData getDataByName(String name) {
-        return DataUtils.firstMatch(managedDataList, data -> data.getName().equals(name));
+        return nameMap.get(name);
     }
 
     @Override
     public IManagedData getDataByIndex(int index) {
-        return DataUtils.firstMatch(managedDataList, data -> data.getIndex() == index);
+        return index >= 0 && index < dataCount ? managedData[index] : null;
     }
 
     @Override
     public void writeToNBT(NBTTagCompound compound) {
-        NBTTagCompound dataTag = new NBTTagCompound();
-        DataUtils.forEachMatch(managedDataList, p -> dataOptions.get(p).saveToNBT, p -> p.toNBT(dataTag));
-        compound.setTag("BCManagedData", dataTag);
+        //If nothing has changed since the last save the values are not written again. The cached compound is never handed out,
+        //the caller always gets a copy so anything that later modifies the saved tag (chunk save, writeToItem etc) can not change the cache.
+        pollSaveData();
+        if (isSaveDirty()) {
+            lastSaveTag = new NBTTagCompound();
+            writeFlagged(lastSaveTag, SAVE_NBT);
+            saveDirty = false;
+        }
+        chunkMarked = false;
+        compound.setTag("BCManagedData", lastSaveTag.copy());
     }
 
     @Override
     public void readFromNBT(NBTTagCompound compound) {
         if (compound.hasKey("BCManagedData", 10)) {
             NBTTagCompound dataTag = compound.getCompoundTag("BCManagedData");
-            DataUtils.forEachMatch(managedDataList, p -> dataOptions.get(p).saveToNBT, p -> p.fromNBT(dataTag));
+            checkSchema(dataTag);
+            readFlagged(dataTag, SAVE_NBT);
         }
+        //The data now matches what is on disk so the changes detected by the next poll do not need to flag the chunk for saving.
+        //The flag is cleared at the end of that poll.
+        chunkMarked = true;
+        loadPending = true;
     }
 
     /**
@@ -199,32 +998,228 @@ public class TileDataManager<T extends TileEntity & IDataManagerProvider> implem
      */
     public void writeSyncNBT(NBTTagCompound compound) {
         NBTTagCompound dataTag = new NBTTagCompound();
-        DataUtils.forEachMatch(managedDataList, p -> dataOptions.get(p).syncViaTile, p -> p.toNBT(dataTag));
+        writeFlagged(dataTag, SYNC_TILE);
+        dataTag.setLong("BCSchema", getSchemaFingerprint());
+        NBTTagCompound codecTag = new NBTTagCompound();
+        for (int i = 0; i < dataCount; i++) {
+            if (isStreamEncoded(i, true) && hasFlag(i, COMPACT)) {
+                NBTTagCompound state = new NBTTagCompound();
+                dataOptions[i].codec.writeState(state);
+                codecTag.setTag(managedData[i].getName(), state);
+            }
+        }
+        if (!codecTag.hasNoTags()) {
+            dataTag.setTag("BCCodec", codecTag);
+        }
         compound.setTag("BCManagedData", dataTag);
     }
 
     public void readSyncNBT(NBTTagCompound compound) {
         if (compound.hasKey("BCManagedData", 10)) {
             NBTTagCompound dataTag = compound.getCompoundTag("BCManagedData");
-            DataUtils.forEachMatch(managedDataList, p -> dataOptions.get(p).syncViaTile, p -> p.fromNBT(dataTag));
+            checkSchema(dataTag);
+            readFlagged(dataTag, SYNC_TILE);
+            //Picks up the compact codec stream where the server is so deltas can be applied straight away rather than waiting for a keyframe.
+            NBTTagCompound codecTag = dataTag.getCompoundTag("BCCodec");
+            for (int i = 0; i < dataCount; i++) {
+                if (isStreamEncoded(i, true) && hasFlag(i, COMPACT)) {
+                    dataOptions[i].codec.readState((ICompactData) managedData[i], codecTag.getCompoundTag(managedData[i].getName()));
+                }
+            }
         }
     }
 
+    /**
+     * Call this from your tile's constructor to save the saveToItem data to the item as a single packed byte array
+     * rather than a compound with one tag per field. This makes a big difference to the size of items that end up
+     * stored in bulk in things like drawers and ME systems. Items saved in either format can always be read.
+     * The packed data is an opaque byte array while the item is in an inventory. It is only decoded when the tile is placed.
+     */
+    public TileDataManager<T> setPackedItemData() {
+        packedItemData = true;
+        return this;
+    }
+
     /**
      * Used to save data to the itemstack when the tile is broken.
      */
     public void writeToStackNBT(NBTTagCompound compound) {
+        if (packedItemData) {
+            byte[] packed = writePacked(SAVE_ITEM);
+            if (packed != null) {
+                compound.setByteArray("BCManagedPacked", packed);
+            }
+            return;
+        }
         NBTTagCompound dataTag = new NBTTagCompound();
-        DataUtils.forEachMatch(managedDataList, p -> dataOptions.get(p).saveToItem, p -> p.toNBT(dataTag));
+        writeFlagged(dataTag, SAVE_ITEM);
         if (!dataTag.hasNoTags()){
             compound.setTag("BCManagedData", dataTag);
         }
     }
 
     public void readFromStackNBT(NBTTagCompound compound) {
-        if (compound.hasKey("BCManagedData", 10)) {
-            NBTTagCompound dataTag = compound.getCompoundTag("BCManagedData");
-            DataUtils.forEachMatch(managedDataList, p -> dataOptions.get(p).saveToItem, p -> p.fromNBT(dataTag));
+        if (compound.hasKey("BCManagedPacked", 7)) {
+            readPacked(compound.getByteArray("BCManagedPacked"), SAVE_ITEM);
+        }
+        else if (compound.hasKey("BCManagedData", 10)) {
+            readFlagged(compound.getCompoundTag("BCManagedData"), SAVE_ITEM);
+        }
+    }
+
+    /**
+     * Packed format: [format version] [schema fingerprint] [field count] then for each field [field id] [payload length] [payload]<br>
+     * The field id is a hash of the field's name and type. When the schema fingerprint matches, fields are matched by position.
+     * Otherwise they are matched by id so items saved by an older version of a tile still load whatever fields still exist.
+     * Fields that no longer exist are skipped using their length without being decoded.
+     *
+     * @return the packed data or null if there are no fields with the given flag.
+     */
+    private byte[] writePacked(int flag) {
+        BitSet fields = getMatching(flag);
+        if (fields.isEmpty()) {
+            return null;
+        }
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            MCDataOutput output = new MCDataOutputWrapper(new DataOutputStream(bytes));
+            ByteArrayOutputStream fieldBytes = new ByteArrayOutputStream();
+            MCDataOutput fieldOutput = new MCDataOutputWrapper(new DataOutputStream(fieldBytes));
+
+            output.writeByte(PACKED_FORMAT);
+            output.writeLong(getSchemaFingerprint());
+            output.writeVarInt(fields.cardinality());
+            for (int i = fields.nextSetBit(0); i >= 0; i = fields.nextSetBit(i + 1)) {
+                fieldBytes.reset();
+                managedData[i].toBytes(fieldOutput);
+                output.writeInt(getFieldId(i));
+                output.writeVarInt(fieldBytes.size());
+                fieldBytes.writeTo(bytes);
+            }
+            return bytes.toByteArray();
+        }
+        catch (IOException e) {
+            //Can not actually happen with a byte array stream
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void readPacked(byte[] packed, int flag) {
+        try {
+            DataInputStream stream = new DataInputStream(new ByteArrayInputStream(packed));
+            MCDataInput input = new MCDataInputWrapper(stream);
+            int format = input.readByte();
+            if (format != PACKED_FORMAT) {
+                LogHelperBC.warn("Unable to load packed item data for " + tile.getClass().getName() + ". Unknown format: " + format);
+                return;
+            }
+            boolean sameSchema = input.readLong() == getSchemaFingerprint();
+            int count = input.readVarInt();
+            int next = 0;
+            for (int n = 0; n < count; n++) {
+                int id = input.readInt();
+                int length = input.readVarInt();
+                int index = -1;
+                if (sameSchema) {
+                    while (next < dataCount && !hasFlag(next, flag)) {
+                        next++;
+                    }
+                    index = next++;
+                }
+                if (index < 0 || index >= dataCount || getFieldId(index) != id) {
+                    index = -1;
+                    for (int i = 0; i < dataCount; i++) {
+                        if (getFieldId(i) == id) {
+                            index = i;
+                            break;
+                        }
+                    }
+                }
+
+                if (index >= 0 && hasFlag(index, flag)) {
+                    //Each field is read from its own buffer so a field that reads the wrong number of bytes can not break the fields after it.
+                    byte[] data = new byte[length];
+                    stream.readFully(data);
+                    try {
+                        managedData[index].fromBytes(new MCDataInputWrapper(new DataInputStream(new ByteArrayInputStream(data))));
+                    }
+                    catch (RuntimeException e) {
+                        LogHelperBC.warnError("Failed to load packed item data field " + managedData[index].getName() + " for " + tile.getClass().getName(), e);
+                    }
+                }
+                else {
+                    stream.skipBytes(length);
+                }
+            }
+        }
+        catch (IOException e) {
+            LogHelperBC.warnError("Failed to load packed item data for " + tile.getClass().getName(), e);
+        }
+    }
+
+    private int getFieldId(int index) {
+        return managedData[index].getName().hashCode() * 31 + managedData[index].getClass().getName().hashCode();
+    }
+
+    private void writeFlagged(NBTTagCompound dataTag, int flag) {
+        for (int i = 0; i < dataCount; i++) {
+            if (hasFlag(i, flag)) {
+                managedData[i].toNBT(dataTag);
+            }
+        }
+    }
+
+    private void readFlagged(NBTTagCompound dataTag, int flag) {
+        for (int i = 0; i < dataCount; i++) {
+            if (hasFlag(i, flag)) {
+                managedData[i].fromNBT(dataTag);
+                resetInterpolation(i);
+            }
+        }
+    }
+
+    private void resetInterpolation(int index) {
+        if (hasFlag(index, INTERPOLATE)) {
+            ((IInterpolatedData) managedData[index]).getInterpolator().reset();
+        }
+    }
+
+    /**
+     * The field versions last sent to a single container listener.
+     */
+    protected static class ListenerShadow {
+        protected int modCount = -1;
+        protected final int[] versions;
+
+        protected ListenerShadow(int fieldCount) {
+            versions = new int[fieldCount];
+            Arrays.fill(versions, -1);
+        }
+    }
+
+    /**
+     * A set of tile synced fields that share the same audience along with the players that were in that audience at the last check.
+     */
+    protected static class AudienceGroup {
+        protected final double range;
+        protected final SyncAudience audience;
+        protected final BitSet fields = new BitSet();
+        protected Set<EntityPlayerMP> recipients = Collections.emptySet();
+        /**
+         * Players that entered the audience at the last check and still need the current value of every field.
+         */
+        protected Set<EntityPlayerMP> joined = null;
+
+        protected AudienceGroup(double range, SyncAudience audience) {
+            this.range = range;
+            this.audience = audience;
+        }
+
+        protected boolean isRelevant(TileEntity tile, EntityPlayerMP player) {
+            if (range >= 0 && player.getDistanceSq(tile.getPos().getX() + 0.5, tile.getPos().getY() + 0.5, tile.getPos().getZ() + 0.5) <= range * range) {
+                return true;
+            }
+            return audience != null && audience.isRelevant(tile, player);
         }
     }
 }
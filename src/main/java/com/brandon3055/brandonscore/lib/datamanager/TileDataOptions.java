@@ -1,23 +1,59 @@
 package com.brandon3055.brandonscore.lib.datamanager;
 
 public class TileDataOptions<D> {
+    public static final int SAVE_NBT = 1;
+    public static final int SAVE_ITEM = 1 << 1;
+    public static final int SYNC_TILE = 1 << 2;
+    public static final int SYNC_CONTAINER = 1 << 3;
+    public static final int TRIGGER_UPDATE = 1 << 4;
+    public static final int SYNC_ON_SET = 1 << 5;
+    public static final int COMPACT = 1 << 6;
+    public static final int RATE_LIMITED = 1 << 7;
+    public static final int AUDIENCE = 1 << 8;
+    public static final int INTERPOLATE = 1 << 9;
+
     public boolean saveToNBT = false;
     public boolean saveToItem = false;
     public boolean syncViaTile = false;
     public boolean syncViaContainer = false;
     public boolean triggerUpdate = false;
+    public boolean syncOnSet = false;
     public D managedData;
+    public CompactCodec codec = null;
+    public SyncRateLimiter rateLimiter = null;
+    public double syncRange = -1;
+    public SyncAudience audience = null;
+    /**
+     * The option flags packed into a single int. The manager keeps a copy of this for each data index.
+     */
+    public int flags = 0;
+    private TileDataManager manager = null;
+    private int index = -1;
 
     public TileDataOptions(D managedData) {
         this.managedData = managedData;
     }
 
+    public TileDataOptions(TileDataManager manager, int index, D managedData) {
+        this.managedData = managedData;
+        this.manager = manager;
+        this.index = index;
+    }
+
+    private TileDataOptions<D> setFlag(int flag) {
+        flags |= flag;
+        if (manager != null) {
+            manager.updateFlags(index, flags);
+        }
+        return this;
+    }
+
     /**
      * Call to have the data saved to the tile's nbt.
      */
     public TileDataOptions<D> saveToTile() {
         saveToNBT = true;
-        return this;
+        return setFlag(SAVE_NBT);
     }
 
     /**
@@ -25,7 +61,7 @@ public class TileDataOptions<D> {
      */
     public TileDataOptions<D> saveToItem() {
         saveToItem = true;
-        return this;
+        return setFlag(SAVE_ITEM);
     }
 
     /**
@@ -33,7 +69,7 @@ public class TileDataOptions<D> {
      */
     public TileDataOptions<D> syncViaTile() {
         syncViaTile = true;
-        return this;
+        return setFlag(SYNC_TILE);
     }
 
     /**
@@ -42,7 +78,7 @@ public class TileDataOptions<D> {
      */
     public TileDataOptions<D> syncViaContainer() {
         syncViaContainer = true;
-        return this;
+        return setFlag(SYNC_CONTAINER);
     }
 
     /**
@@ -50,7 +86,142 @@ public class TileDataOptions<D> {
      */
     public TileDataOptions<D> trigerUpdate() {
         this.triggerUpdate = true;
-        return this;
+        return setFlag(TRIGGER_UPDATE);
+    }
+
+    /**
+     * Call if this data is only ever modified via its setter (or you call markDirty after modifying it).
+     * The manager will then stop polling this data for changes every tick and will only sync it when it is marked dirty.
+     * Any changes made by writing directly to the public value field without calling markDirty will not be synchronized.
+     */
+    public TileDataOptions<D> syncOnSet() {
+        this.syncOnSet = true;
+        return setFlag(SYNC_ON_SET);
+    }
+
+    /**
+     * Same as {@link #compactSync(double, int)} with a precision of 0.001 and a keyframe every 100 updates.
+     */
+    public TileDataOptions<D> compactSync() {
+        return compactSync(0.001, 100);
+    }
+
+    /**
+     * Call to have this data synchronized via the tile using the compact delta codec. See {@link CompactCodec}<br>
+     * This is ideal for numeric values that change by small amounts often such as energy storage.
+     * Only applies to the tile sync. Container sync always sends the full value because each listener has a different baseline.
+     * Can only be used with data that implements {@link ICompactData}
+     *
+     * @param precision        The quantisation step for floating point values. e.g. 0.01 will sync a double to 2 decimal places. Ignored by integer types.
+     * @param keyframeInterval A full value will be sent every keyframeInterval updates.
+     */
+    public TileDataOptions<D> compactSync(double precision, int keyframeInterval) {
+        if (!(managedData instanceof ICompactData)) {
+            throw new IllegalStateException("Compact sync is not supported by " + managedData);
+        }
+        if (precision <= 0) {
+            throw new IllegalArgumentException("Compact sync precision must be greater than zero");
+        }
+        codec = new CompactCodec(precision, keyframeInterval);
+        return setFlag(COMPACT);
+    }
+
+    /**
+     * Limits how often this data can be synchronized. Useful for things like progress bars and energy readouts that change every tick
+     * when the client only needs a few updates per second. Whenever the interval expires the latest value is sent so the client is never left stale.
+     *
+     * @param ticks the minimum number of ticks between updates.
+     */
+    public TileDataOptions<D> syncInterval(int ticks) {
+        getRateLimiter().interval = Math.max(1, ticks);
+        return setFlag(RATE_LIMITED);
+    }
+
+    /**
+     * Changes smaller than this threshold (compared to the last value sent) will be held back until the value stops changing.
+     * Can only be used with data that implements {@link ICompactData}
+     *
+     * @param threshold the minimum change in any component required to trigger an immediate update.
+     */
+    public TileDataOptions<D> syncThreshold(double threshold) {
+        if (!(managedData instanceof ICompactData)) {
+            throw new IllegalStateException("Sync threshold is not supported by " + managedData);
+        }
+        getRateLimiter().threshold = threshold;
+        return setFlag(RATE_LIMITED);
+    }
+
+    /**
+     * Changes will be held back until the value has stopped changing for at least the sync interval (or 1 tick if no interval is set).
+     * Useful for values controlled by things like sliders. A change will never be held for more than a few intervals.
+     */
+    public TileDataOptions<D> syncOnSettle() {
+        getRateLimiter().settle = true;
+        return setFlag(RATE_LIMITED);
+    }
+
+    /**
+     * Limits the tile sync for this data to players within the given range of the tile rather than everyone watching the chunk.
+     * Ideal for purely cosmetic data that is only visible up close. Players that move into range receive the current value.
+     * If an audience is also set a player only needs to satisfy one of the two.<br>
+     * Data with a restricted audience is always sent in full (the compact codec is not used) because the codec requires every
+     * watcher to receive every update.
+     *
+     * @param range the maximum distance in blocks from the center of the tile.
+     */
+    public TileDataOptions<D> syncRange(double range) {
+        syncRange = range;
+        return setFlag(AUDIENCE);
+    }
+
+    /**
+     * Limits the tile sync for this data to players accepted by the given audience. e.g. {@link SyncAudience#CONTAINER_VIEWERS}
+     * See {@link #syncRange(double)}
+     */
+    public TileDataOptions<D> syncAudience(SyncAudience audience) {
+        this.audience = audience;
+        return setFlag(AUDIENCE);
+    }
+
+    /**
+     * Convenience method for data that should only be synchronized to players that have the tile's gui open or are within the given range.
+     */
+    public TileDataOptions<D> syncToViewers(double range) {
+        return syncRange(range).syncAudience(SyncAudience.CONTAINER_VIEWERS);
+    }
+
+    /**
+     * Limits this data to one update every given number of ticks (see {@link #syncInterval(int)}) and timestamps each update
+     * so the client can smoothly animate the value between updates via getInterpolated(partialTicks).
+     * The displayed value runs one interval behind the server. See {@link Interpolator}<br>
+     * Can only be used with data that implements {@link IInterpolatedData}
+     */
+    public TileDataOptions<D> interpolate(int ticks) {
+        return setInterpolator(ticks, false);
+    }
+
+    /**
+     * Same as {@link #interpolate(int)} but rather than running behind the server the client predicts the value from the last two updates.
+     * Best suited to values that change at a steady rate.
+     */
+    public TileDataOptions<D> extrapolate(int ticks) {
+        return setInterpolator(ticks, true);
+    }
+
+    private TileDataOptions<D> setInterpolator(int ticks, boolean extrapolate) {
+        if (!(managedData instanceof IInterpolatedData)) {
+            throw new IllegalStateException("Interpolation is not supported by " + managedData);
+        }
+        ((IInterpolatedData) managedData).setInterpolator(new Interpolator(ticks, extrapolate));
+        syncInterval(ticks);
+        return setFlag(INTERPOLATE);
+    }
+
+    private SyncRateLimiter getRateLimiter() {
+        if (rateLimiter == null) {
+            rateLimiter = new SyncRateLimiter();
+        }
+        return rateLimiter;
     }
 
     /**
@@ -59,4 +230,4 @@ public class TileDataOptions<D> {
     public D finish() {
         return managedData;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,315 @@
+package com.brandon3055.brandonscore.lib.datamanager;
+
+import codechicken.lib.data.MCDataInput;
+import codechicken.lib.data.MCDataInputWrapper;
+import codechicken.lib.data.MCDataOutput;
+import codechicken.lib.data.MCDataOutputWrapper;
+import codechicken.lib.packet.PacketCustom;
+import com.brandon3055.brandonscore.BrandonsCore;
+import com.brandon3055.brandonscore.network.NetStats;
+import com.brandon3055.brandonscore.network.OutboundPacketScheduler;
+import com.brandon3055.brandonscore.network.OutboundPacketScheduler.Priority;
+import com.brandon3055.brandonscore.network.PacketDispatcher;
+import com.brandon3055.brandonscore.utils.LogHelperBC;
+import com.brandon3055.brandonscore.utils.ServerProfiler;
+import net.minecraft.entity.player.EntityPlayer;
+import net.minecraft.entity.player.EntityPlayerMP;
+import net.minecraft.network.Packet;
+import net.minecraft.server.management.PlayerChunkMap;
+import net.minecraft.server.management.PlayerChunkMapEntry;
+import net.minecraft.tileentity.TileEntity;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.World;
+import net.minecraft.world.WorldServer;
+import net.minecraftforge.event.world.WorldEvent;
+import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+import net.minecraftforge.fml.common.gameevent.TickEvent;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Collects the pending tile sync deltas from every {@link TileDataManager} in a world and sends them at the end of the world tick.
+ * Rather than each tile sending its own packet to the chunk, all tiles in a chunk that changed this tick are sent to the players watching
+ * that chunk as a single packet.
+ * Data with a restricted audience (see {@link TileDataOptions#syncRange(double)}) is sent in a separate chunk packet to each player in its audience.
+ * <p>
+ * Packet format: [chunkX] [chunkZ] [tile count] then for each tile [relative pos as a short (y 8 bits, x 4 bits, z 4 bits)] [data length] [tile sync data]<br>
+ * The length allows the client to skip entries it can not apply (e.g. the tile has not been placed on the client yet) without losing the rest of the chunk.
+ */
+public class TileSyncScheduler {
+
+    private static final String PROFILE_SEND = "tile_sync_scheduler";
+    private static final Map<World, Map<Long, List<TileDataManager>>> pendingSync = new HashMap<>();
+
+    /**
+     * Queues the given manager to have its pending tile sync data sent at the end of this tick.
+     */
+    public static void queue(TileDataManager manager) {
+        TileEntity tile = manager.tile;
+        BlockPos pos = tile.getPos();
+        long chunk = ChunkPos.asLong(pos.getX() >> 4, pos.getZ() >> 4);
+        pendingSync.computeIfAbsent(tile.getWorld(), world -> new HashMap<>()).computeIfAbsent(chunk, c -> new ArrayList<>()).add(manager);
+    }
+
+    @SubscribeEvent
+    public void worldTick(TickEvent.WorldTickEvent event) {
+        if (event.phase == TickEvent.Phase.END && event.world instanceof WorldServer) {
+            Map<Long, List<TileDataManager>> chunks = pendingSync.remove(event.world);
+            if (chunks != null) {
+                long start = ServerProfiler.start();
+                sendChunks((WorldServer) event.world, chunks);
+                ServerProfiler.recordSection(PROFILE_SEND, start);
+            }
+        }
+    }
+
+    @SubscribeEvent
+    public void worldUnload(WorldEvent.Unload event) {
+        pendingSync.remove(event.getWorld());
+    }
+
+    private static void sendChunks(WorldServer world, Map<Long, List<TileDataManager>> chunks) {
+        PlayerChunkMap chunkMap = world.getPlayerChunkMap();
+        for (List<TileDataManager> managers : chunks.values()) {
+            BlockPos first = managers.get(0).tile.getPos();
+            int chunkX = first.getX() >> 4;
+            int chunkZ = first.getZ() >> 4;
+            PlayerChunkMapEntry entry = chunkMap.getEntry(chunkX, chunkZ);
+            if (entry == null || !entry.isSentToPlayers()) {
+                //No one can receive these updates. Same as sendToChunk we just discard them.
+                for (TileDataManager manager : managers) {
+                    manager.updateAudience(Collections.emptyList());
+                    manager.retainFallbackPlayers(Collections.emptyList());
+                    manager.clearQueuedSync();
+                }
+                continue;
+            }
+
+            managers.removeIf(manager -> {
+                if (manager.tile.isInvalid()) {
+                    manager.clearQueuedSync();
+                    return true;
+                }
+                return false;
+            });
+            if (managers.isEmpty()) {
+                continue;
+            }
+
+            int count = managers.size();
+            BitSet[] shared = new BitSet[count];
+            boolean hasShared = false;
+            boolean hasAudience = false;
+            boolean hasFallback = false;
+            for (int i = 0; i < count; i++) {
+                TileDataManager manager = managers.get(i);
+                shared[i] = manager.getSharedPending();
+                hasShared |= shared[i] != null;
+                hasAudience |= manager.getAudienceGroups().length > 0;
+                hasFallback |= !manager.fallbackPlayers.isEmpty();
+            }
+
+            //The shared data must only be written once because the compact codec and delta data are stateful.
+            Supplier<PacketCustom> sharedPacket = hasShared ? prepareChunkPacket(chunkX, chunkZ, managers, shared) : null;
+            if (!hasAudience && !hasFallback && !OutboundPacketScheduler.isEnabled() && !SyncEncoder.isEnabled()) {
+                if (sharedPacket != null) {
+                    Packet<?> packet = sharedPacket.get().toPacket();
+                    if (NetStats.isEnabled()) {
+                        NetStats.recordPacket(packet, SyncEncoder.getWatchers(managers.get(0).tile));
+                    }
+                    entry.sendPacket(packet);
+                }
+            }
+            else {
+                //The watchers are found once per chunk and shared by every audience in the chunk.
+                List<EntityPlayerMP> watchers = new ArrayList<>();
+                for (EntityPlayer player : world.playerEntities) {
+                    if (player instanceof EntityPlayerMP && chunkMap.isPlayerWatchingChunk((EntityPlayerMP) player, chunkX, chunkZ)) {
+                        watchers.add((EntityPlayerMP) player);
+                    }
+                }
+                if (hasAudience) {
+                    managers.forEach(manager -> manager.updateAudience(watchers));
+                }
+                if (hasFallback) {
+                    managers.forEach(manager -> manager.retainFallbackPlayers(watchers));
+                }
+
+                //Players that need the same data share a packet.
+                List<EntityPlayerMP> sharedRecipients = new ArrayList<>();
+                Map<List<BitSet>, List<EntityPlayerMP>> audienceRecipients = new LinkedHashMap<>();
+                for (EntityPlayerMP player : watchers) {
+                    BitSet[] fields = new BitSet[count];
+                    boolean any = false;
+                    boolean fallback = false;
+                    for (int i = 0; i < count; i++) {
+                        fields[i] = managers.get(i).getAudiencePending(player);
+                        any |= fields[i] != null;
+                        fallback |= managers.get(i).fallbackPlayers.contains(player);
+                    }
+
+                    if (fallback) {
+                        //A client with a schema mismatch can not read any part of a chunk packet that contains the mismatched tile
+                        //so that client gets everything in this chunk as nbt.
+                        for (int i = 0; i < count; i++) {
+                            BitSet all = fields[i] == null ? shared[i] : fields[i];
+                            if (all != null && shared[i] != null) {
+                                all.or(shared[i]);
+                            }
+                            if (all != null) {
+                                managers.get(i).sendFallback(player, all);
+                            }
+                        }
+                        continue;
+                    }
+
+                    sharedRecipients.add(player);
+                    if (any) {
+                        audienceRecipients.computeIfAbsent(Arrays.asList(fields), key -> new ArrayList<>()).add(player);
+                    }
+                }
+
+                if (sharedPacket != null) {
+                    SyncEncoder.send(sharedPacket, sharedRecipients, Priority.TILE, getTiles(managers, shared));
+                }
+                audienceRecipients.forEach((fields, players) -> {
+                    BitSet[] fieldArray = fields.toArray(new BitSet[0]);
+                    SyncEncoder.send(prepareChunkPacket(chunkX, chunkZ, managers, fieldArray), players, Priority.TILE, getTiles(managers, fieldArray));
+                });
+            }
+
+            managers.forEach(TileDataManager::clearQueuedSync);
+        }
+    }
+
+    /**
+     * Returns a builder for a chunk packet. If async encoding is enabled the data is snapshot now and the packet is built by the
+     * {@link SyncEncoder} thread. Otherwise the packet is built immediately.
+     *
+     * @param fields the fields to write for each manager. Managers with a null entry are skipped.
+     */
+    private static Supplier<PacketCustom> prepareChunkPacket(int chunkX, int chunkZ, List<TileDataManager> managers, BitSet[] fields) {
+        if (!SyncEncoder.isEnabled()) {
+            PacketCustom packet = createChunkPacket(chunkX, chunkZ, managers, fields);
+            return () -> packet;
+        }
+
+        List<Short> positions = new ArrayList<>();
+        List<Consumer<MCDataOutput>> writers = new ArrayList<>();
+        for (int i = 0; i < fields.length; i++) {
+            if (fields[i] != null) {
+                TileDataManager manager = managers.get(i);
+                positions.add(getRelativePos(manager.tile.getPos()));
+                writers.add(manager.snapshotSyncData(fields[i], true));
+            }
+        }
+        return () -> {
+            PacketCustom packet = new PacketCustom(BrandonsCore.NET_CHANNEL, PacketDispatcher.C_TILE_DATA_CHUNK);
+            packet.writeInt(chunkX);
+            packet.writeInt(chunkZ);
+            packet.writeVarInt(writers.size());
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            MCDataOutput output = new MCDataOutputWrapper(new DataOutputStream(bytes));
+            for (int i = 0; i < writers.size(); i++) {
+                packet.writeShort(positions.get(i));
+                bytes.reset();
+                writers.get(i).accept(output);
+                packet.writeVarInt(bytes.size());
+                packet.writeArray(bytes.toByteArray());
+            }
+            return packet;
+        };
+    }
+
+    /**
+     * @param fields the fields to write for each manager. Managers with a null entry are skipped.
+     */
+    private static PacketCustom createChunkPacket(int chunkX, int chunkZ, List<TileDataManager> managers, BitSet[] fields) {
+        PacketCustom packet = new PacketCustom(BrandonsCore.NET_CHANNEL, PacketDispatcher.C_TILE_DATA_CHUNK);
+        packet.writeInt(chunkX);
+        packet.writeInt(chunkZ);
+        int count = 0;
+        for (BitSet set : fields) {
+            if (set != null) {
+                count++;
+            }
+        }
+        packet.writeVarInt(count);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        MCDataOutput output = new MCDataOutputWrapper(new DataOutputStream(bytes));
+        for (int i = 0; i < fields.length; i++) {
+            if (fields[i] != null) {
+                TileDataManager manager = managers.get(i);
+                packet.writeShort(getRelativePos(manager.tile.getPos()));
+                bytes.reset();
+                manager.writeSyncData(output, fields[i], true);
+                packet.writeVarInt(bytes.size());
+                packet.writeArray(bytes.toByteArray());
+            }
+        }
+        return packet;
+    }
+
+    /**
+     * @return the tiles of the managers that have an entry in the given field array.
+     */
+    private static List<TileEntity> getTiles(List<TileDataManager> managers, BitSet[] fields) {
+        List<TileEntity> tiles = new ArrayList<>();
+        for (int i = 0; i < fields.length; i++) {
+            if (fields[i] != null) {
+                tiles.add(managers.get(i).tile);
+            }
+        }
+        return tiles;
+    }
+
+    private static short getRelativePos(BlockPos pos) {
+        return (short) (pos.getY() << 8 | (pos.getX() & 15) << 4 | (pos.getZ() & 15));
+    }
+
+    /**
+     * Called client side to distribute the contents of a chunk sync packet to the individual tiles.
+     */
+    public static void readChunkSync(World world, MCDataInput input) {
+        int chunkX = input.readInt();
+        int chunkZ = input.readInt();
+        int count = input.readVarInt();
+        for (int i = 0; i < count; i++) {
+            int relPos = input.readShort() & 0xFFFF;
+            BlockPos pos = new BlockPos((chunkX << 4) + (relPos >> 4 & 15), relPos >> 8, (chunkZ << 4) + (relPos & 15));
+            //Each entry is decoded from its own buffer so an entry that is misread can not affect the entries after it.
+            byte[] data = input.readArray(input.readVarInt());
+            TileEntity tile = world.getTileEntity(pos);
+            if (!(tile instanceof IDataManagerProvider)) {
+                //Usually the block change for a newly placed tile has not reached us yet. The tile will get the current data from its update tag.
+                LogHelperBC.dev("Received chunk sync data for a missing tile at " + pos + ". Skipping entry");
+                continue;
+            }
+            IDataManager manager = ((IDataManagerProvider) tile).getDataManager();
+            if (manager instanceof TileDataManager && ((TileDataManager) manager).isSchemaMismatch()) {
+                LogHelperBC.dev("Received chunk sync data for a tile with a schema mismatch at " + pos + ". Skipping entry");
+                continue;
+            }
+            try {
+                manager.receiveSyncData(new MCDataInputWrapper(new DataInputStream(new ByteArrayInputStream(data))));
+            }
+            catch (RuntimeException e) {
+                LogHelperBC.warnError("Failed to read chunk sync data for " + tile.getClass().getName() + " at " + pos, e);
+            }
+        }
+    }
+}
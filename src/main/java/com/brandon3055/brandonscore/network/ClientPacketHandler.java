@@ -7,6 +7,8 @@ import com.brandon3055.brandonscore.client.gui.GuiPlayerAccess;
 import com.brandon3055.brandonscore.handlers.BCEventHandler;
 import com.brandon3055.brandonscore.lib.ChatHelper;
 import com.brandon3055.brandonscore.lib.datamanager.IDataManagerProvider;
+import com.brandon3055.brandonscore.lib.datamanager.TileDataManager;
+import com.brandon3055.brandonscore.lib.datamanager.TileSyncScheduler;
 import com.brandon3055.brandonscore.registry.ModConfigParser;
 import net.minecraft.client.Minecraft;
 import net.minecraft.client.resources.I18n;
@@ -27,6 +29,17 @@ public class ClientPacketHandler implements ICustomPacketHandler.IClientPacketHa
                 }
                 break;
             }
+            case PacketDispatcher.C_TILE_DATA_CHUNK:
+                TileSyncScheduler.readChunkSync(mc.world, packet);
+                break;
+            case PacketDispatcher.C_TILE_DATA_NBT: {
+                BlockPos pos = packet.readPos();
+                TileEntity tile = Minecraft.getMinecraft().world.getTileEntity(pos);
+                if (tile instanceof IDataManagerProvider && ((IDataManagerProvider) tile).getDataManager() instanceof TileDataManager) {
+                    ((TileDataManager) ((IDataManagerProvider) tile).getDataManager()).receiveFallbackData(packet.readNBTTagCompound());
+                }
+                break;
+            }
             case PacketDispatcher.C_TILE_MESSAGE: {
                 BlockPos pos = packet.readPos();
                 TileEntity tile = Minecraft.getMinecraft().world.getTileEntity(pos);
@@ -39,6 +52,9 @@ public class ClientPacketHandler implements ICustomPacketHandler.IClientPacketHa
             case PacketDispatcher.C_SERVER_CONFIG_SYNC:
                 ModConfigParser.readConfigForSync(packet);
                 break;
+            case PacketDispatcher.C_SERVER_CONFIG_HASH:
+                ModConfigParser.receiveConfigHash(packet);
+                break;
             case PacketDispatcher.C_NO_CLIP:
                 boolean enable = packet.readBoolean();
                 if (enable) {
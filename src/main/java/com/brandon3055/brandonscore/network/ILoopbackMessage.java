@@ -0,0 +1,16 @@
+package com.brandon3055.brandonscore.network;
+
+import net.minecraftforge.fml.common.network.simpleimpl.IMessage;
+
+/**
+ * A client bound message that can be handed directly to the local client when the target is the integrated server owner.
+ * See {@link LoopbackTransport}.<br>
+ * Messages sent via loopback are never serialized so they must not be modified after they are sent.
+ */
+public interface ILoopbackMessage extends IMessage {
+
+    /**
+     * Called on the client thread. Should do exactly what the message handler does on the client side.
+     */
+    void handleClient();
+}
@@ -0,0 +1,70 @@
+package com.brandon3055.brandonscore.network;
+
+import com.brandon3055.brandonscore.BCConfig;
+import com.brandon3055.brandonscore.BrandonsCore;
+import com.brandon3055.brandonscore.utils.LogHelperBC;
+import net.minecraft.entity.player.EntityPlayerMP;
+import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+import net.minecraftforge.fml.common.gameevent.TickEvent;
+import org.apache.logging.log4j.Level;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * In memory transport for messages sent from the integrated server to the player hosting it.
+ * <p>
+ * The local client is connected through a local channel but every message is still serialized into a buffer, passed through the
+ * channel pipeline, deserialized and then scheduled on the client thread. For {@link ILoopbackMessage}s sent to the local player
+ * the message object itself is added to a lock free queue which is drained on the client thread at the start of every client tick.
+ * <p>
+ * Only order independent messages (particles, tick times) use this. Tile data and gui packets must stay in order with the vanilla
+ * chunk and tile packets so they always go through the network. See the "integratedServerLoopback" config option.
+ */
+public class LoopbackTransport {
+
+    private static final Queue<ILoopbackMessage> queue = new ConcurrentLinkedQueue<>();
+
+    /**
+     * @return true if the given player is the player hosting this integrated server.
+     */
+    public static boolean isLocalClient(EntityPlayerMP player) {
+        return BCConfig.integratedServerLoopback && !BrandonsCore.proxy.isDedicatedServer() && player.connection != null && player.connection.getNetworkManager().isLocalChannel();
+    }
+
+    /**
+     * Hands the message to the local client if the player is the local client.
+     *
+     * @return false if the player is not the local client in which case the message must be sent normally.
+     */
+    public static boolean trySend(ILoopbackMessage message, EntityPlayerMP player) {
+        if (!isLocalClient(player)) {
+            return false;
+        }
+        queue.add(message);
+        return true;
+    }
+
+    @SubscribeEvent
+    public void clientTick(TickEvent.ClientTickEvent event) {
+        if (event.phase != TickEvent.Phase.START || queue.isEmpty()) {
+            return;
+        }
+
+        //Messages for a world the client has already left are discarded just as they would be if the connection had closed.
+        if (BrandonsCore.proxy.getClientWorld() == null) {
+            queue.clear();
+            return;
+        }
+
+        ILoopbackMessage message;
+        while ((message = queue.poll()) != null) {
+            try {
+                message.handleClient();
+            }
+            catch (Throwable e) {
+                LogHelperBC.log(Level.ERROR, "An error occurred while handling loopback message " + message.getClass().getSimpleName(), e);
+            }
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.brandon3055.brandonscore.network;
 
+import com.brandon3055.brandonscore.utils.ServerProfiler;
 import net.minecraftforge.fml.common.network.simpleimpl.IMessage;
 import net.minecraftforge.fml.common.network.simpleimpl.IMessageHandler;
 import net.minecraftforge.fml.common.network.simpleimpl.MessageContext;
@@ -16,7 +17,9 @@ public abstract class MessageHandlerWrapper<REQ extends IMessage, REPLY extends
         PacketSyncObject<REQ, REPLY> syncObject = new PacketSyncObject<REQ, REPLY>(message, ctx) {
             @Override
             public void run() {
+                long start = ctx.side == Side.SERVER ? ServerProfiler.start() : 0;
                 reply = handleMessage(message, ctx);
+                ServerProfiler.recordPacket(message.getClass(), start);
             }
         };
 
@@ -0,0 +1,226 @@
+package com.brandon3055.brandonscore.network;
+
+import codechicken.lib.data.MCDataOutput;
+import codechicken.lib.data.MCDataOutputWrapper;
+import com.brandon3055.brandonscore.BrandonsCore;
+import net.minecraft.entity.player.EntityPlayerMP;
+import net.minecraft.network.Packet;
+import net.minecraftforge.fml.common.network.internal.FMLProxyPacket;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Network traffic accounting for BrandonsCore packets. Recording is disabled by default and is started via "/bcore_util net_stats start".
+ * <p>
+ * Four tables are recorded.<br>
+ * Packet types: every packet sent to a client, counted once per recipient. This is the actual outbound bandwidth.<br>
+ * Players: the same packets keyed by the player they were sent to.<br>
+ * Tile classes and managed fields: the sync data written by each {@link com.brandon3055.brandonscore.lib.datamanager.TileDataManager}.
+ * These count the encoded size once per packet regardless of how many players the packet is sent to.
+ * Packets must be sent via {@link OutboundPacketScheduler} or {@link #sendPacket(Packet, EntityPlayerMP)} (or recorded with
+ * {@link #recordPacket(Packet, EntityPlayerMP)}) to be counted.
+ * <p>
+ * All counters are {@link LongAdder}s so they can be updated from the server thread, the sync encoder thread and the netty threads without contention.
+ */
+public class NetStats {
+
+    public static final String PACKETS = "packets";
+    public static final String TILES = "tiles";
+    public static final String FIELDS = "fields";
+    public static final String PLAYERS = "players";
+
+    private static final Map<String, String> typeNames = new ConcurrentHashMap<>();
+    private static final Map<String, Counter> packets = new ConcurrentHashMap<>();
+    private static final Map<String, Counter> tiles = new ConcurrentHashMap<>();
+    private static final Map<String, Counter> fields = new ConcurrentHashMap<>();
+    private static final Map<String, Counter> players = new ConcurrentHashMap<>();
+    private static volatile boolean enabled = false;
+    private static volatile long startTime = 0;
+
+    static {
+        registerPacketType(BrandonsCore.NET_CHANNEL, PacketDispatcher.C_TILE_DATA_MANAGER, "tile_data");
+        registerPacketType(BrandonsCore.NET_CHANNEL, PacketDispatcher.C_TILE_MESSAGE, "tile_message");
+        registerPacketType(BrandonsCore.NET_CHANNEL, PacketDispatcher.C_SERVER_CONFIG_SYNC, "config_sync");
+        registerPacketType(BrandonsCore.NET_CHANNEL, PacketDispatcher.C_NO_CLIP, "no_clip");
+        registerPacketType(BrandonsCore.NET_CHANNEL, PacketDispatcher.C_PLAYER_ACCESS, "player_access");
+        registerPacketType(BrandonsCore.NET_CHANNEL, PacketDispatcher.C_PLAYER_ACCESS_UPDATE, "player_access_update");
+        registerPacketType(BrandonsCore.NET_CHANNEL, PacketDispatcher.C_INDEXED_LOCALIZED_CHAT, "localized_chat");
+        registerPacketType(BrandonsCore.NET_CHANNEL, PacketDispatcher.C_TILE_DATA_CHUNK, "tile_data_chunk");
+        registerPacketType(BrandonsCore.NET_CHANNEL, PacketDispatcher.C_TILE_DATA_NBT, "tile_data_nbt");
+        registerPacketType(BrandonsCore.NET_CHANNEL, PacketDispatcher.C_SERVER_CONFIG_HASH, "config_hash");
+        registerPacketType("BCoreNet", 0, "spawn_particle");
+        registerPacketType("BCoreNet", 1, "update_mount");
+        registerPacketType("BCoreNet", 3, "tick_time");
+        registerPacketType("BCoreNet", 4, "contributor");
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void start() {
+        if (!enabled) {
+            startTime = System.currentTimeMillis();
+            enabled = true;
+        }
+    }
+
+    public static void stop() {
+        enabled = false;
+    }
+
+    public static void reset() {
+        packets.clear();
+        tiles.clear();
+        fields.clear();
+        players.clear();
+        startTime = System.currentTimeMillis();
+    }
+
+    /**
+     * @return the time in milliseconds since recording was started or reset.
+     */
+    public static long getRecordingTime() {
+        return startTime == 0 ? 0 : System.currentTimeMillis() - startTime;
+    }
+
+    /**
+     * Gives a packet type a readable name in the packet table. Packets are identified by their channel and discriminator byte.
+     */
+    public static void registerPacketType(String channel, int id, String name) {
+        typeNames.put(channel + "/" + id, name);
+    }
+
+    /**
+     * Records the packet and sends it to the given player.
+     */
+    public static void sendPacket(Packet<?> packet, EntityPlayerMP player) {
+        if (player.connection != null) {
+            recordPacket(packet, player);
+            player.connection.sendPacket(packet);
+        }
+    }
+
+    /**
+     * Records a packet being sent to each of the given players.
+     */
+    public static void recordPacket(Packet<?> packet, Collection<EntityPlayerMP> recipients) {
+        if (enabled) {
+            recipients.forEach(player -> recordPacket(packet, player));
+        }
+    }
+
+    /**
+     * Records a packet being sent to the given player.
+     */
+    public static void recordPacket(Packet<?> packet, EntityPlayerMP player) {
+        if (!enabled) {
+            return;
+        }
+        String type;
+        int size;
+        if (packet instanceof FMLProxyPacket) {
+            FMLProxyPacket proxy = (FMLProxyPacket) packet;
+            size = proxy.payload().readableBytes();
+            String key = proxy.channel() + "/" + (size > 0 ? proxy.payload().getUnsignedByte(proxy.payload().readerIndex()) : -1);
+            type = typeNames.getOrDefault(key, key);
+        }
+        else {
+            type = packet.getClass().getSimpleName();
+            size = 0;
+        }
+        packets.computeIfAbsent(type, t -> new Counter()).add(1, size);
+        players.computeIfAbsent(player.getName(), p -> new Counter()).add(1, size);
+    }
+
+    /**
+     * Records one sync of the given tile class. The bytes are recorded by {@link #recordField(Class, String, int)}
+     */
+    public static void recordTileSync(Class<?> tileClass) {
+        if (enabled) {
+            tiles.computeIfAbsent(tileClass.getName(), t -> new Counter()).add(1, 0);
+        }
+    }
+
+    public static void recordField(Class<?> tileClass, String field, int bytes) {
+        if (enabled) {
+            tiles.computeIfAbsent(tileClass.getName(), t -> new Counter()).add(0, bytes);
+            fields.computeIfAbsent(tileClass.getSimpleName() + "." + field, f -> new Counter()).add(1, bytes);
+        }
+    }
+
+    /**
+     * Wraps the given writer so the number of bytes it writes is recorded against the given field.
+     * Should only be used while recording is enabled because the data is written to a temporary buffer first.
+     */
+    public static Consumer<MCDataOutput> measure(Consumer<MCDataOutput> writer, Class<?> tileClass, String field) {
+        return output -> {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            writer.accept(new MCDataOutputWrapper(new DataOutputStream(bytes)));
+            recordField(tileClass, field, bytes.size());
+            output.writeArray(bytes.toByteArray());
+        };
+    }
+
+    /**
+     * @return the entries in the given table sorted by bytes (largest first).
+     */
+    public static List<Entry> getTable(String table) {
+        Map<String, Counter> map = table.equals(TILES) ? tiles : table.equals(FIELDS) ? fields : table.equals(PLAYERS) ? players : packets;
+        List<Entry> entries = new ArrayList<>();
+        map.forEach((name, counter) -> entries.add(new Entry(name, counter.count.sum(), counter.bytes.sum())));
+        entries.sort((a, b) -> Long.compare(b.bytes, a.bytes));
+        return entries;
+    }
+
+    /**
+     * Writes every table to the given file as csv.
+     */
+    public static void writeCSV(File file) throws IOException {
+        try (PrintWriter writer = new PrintWriter(file, "UTF-8")) {
+            writer.println("table,name,count,bytes");
+            for (String table : new String[]{PACKETS, PLAYERS, TILES, FIELDS}) {
+                for (Entry entry : getTable(table)) {
+                    writer.println(table + "," + entry.name + "," + entry.count + "," + entry.bytes);
+                }
+            }
+        }
+    }
+
+    private static class Counter {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder bytes = new LongAdder();
+
+        private void add(long count, long bytes) {
+            if (count != 0) {
+                this.count.add(count);
+            }
+            if (bytes != 0) {
+                this.bytes.add(bytes);
+            }
+        }
+    }
+
+    public static class Entry {
+        public final String name;
+        public final long count;
+        public final long bytes;
+
+        private Entry(String name, long count, long bytes) {
+            this.name = name;
+            this.count = count;
+            this.bytes = bytes;
+        }
+    }
+}
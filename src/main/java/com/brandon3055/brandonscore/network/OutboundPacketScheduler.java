@@ -0,0 +1,376 @@
+package com.brandon3055.brandonscore.network;
+
+import codechicken.lib.packet.PacketCustom;
+import com.brandon3055.brandonscore.BCConfig;
+import com.brandon3055.brandonscore.lib.datamanager.SyncEncoder;
+import net.minecraft.entity.player.EntityPlayer;
+import net.minecraft.entity.player.EntityPlayerMP;
+import net.minecraft.network.NetHandlerPlayServer;
+import net.minecraft.network.Packet;
+import net.minecraft.network.play.server.SPacketUpdateTileEntity;
+import net.minecraft.server.management.PlayerChunkMap;
+import net.minecraft.tileentity.TileEntity;
+import net.minecraft.world.World;
+import net.minecraft.world.WorldServer;
+import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+import net.minecraftforge.fml.common.gameevent.PlayerEvent;
+import net.minecraftforge.fml.common.gameevent.TickEvent;
+import net.minecraftforge.fml.common.network.internal.FMLProxyPacket;
+
+import javax.annotation.Nullable;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * Applies a per player bandwidth budget to BrandonsCore network traffic. See the "playerBandwidthBudget" config option.
+ * When the budget is 0 (the default) everything is sent immediately exactly as if this class did not exist.
+ * <p>
+ * Each player earns budget bytes of credit every tick (up to a few ticks worth of burst). Packets are sent immediately while the player
+ * has credit, otherwise they are queued and sent at the end of the tick in priority order.<br>
+ * {@link Priority#GUI} packets are never delayed but still use up credit (they never put a player into debt). Any queued tile packets for the
+ * tiles a gui packet is for are sent first so an older queued value can never overwrite the newer gui value on the client.<br>
+ * {@link Priority#TILE} packets are queued in order. Each queued packet records the tiles whose data it contains. If a new packet is for a tile
+ * that already has a queued packet, the queued packets and the new one are replaced by a single resync entry. (They can not simply be merged
+ * because the tile data stream is made of deltas.) When a resync entry is sent each of its tiles sends its current update packet
+ * ({@link TileEntity#getUpdatePacket()}) which contains the full value of all synced data and the codec state.
+ * So the latest data always wins and the queue never holds more than one entry per tile. The queue is also capped at {@link #MAX_TILE_QUEUE}
+ * entries. Once full, new packets are merged into the last entry as a resync. Tile packets sent without their tiles are never merged.<br>
+ * {@link Priority#COSMETIC} packets (particles) are only sent once all tile packets have been sent. Queued cosmetic packets with the same
+ * coalesce key replace each other and anything that has waited more than a few ticks is dropped.
+ */
+public class OutboundPacketScheduler {
+
+    public enum Priority {
+        GUI,
+        TILE,
+        COSMETIC
+    }
+
+    private static final int BURST_TICKS = 4;
+    private static final int MAX_COSMETIC_AGE = 5;
+    private static final int MAX_COSMETIC_QUEUE = 256;
+    private static final int MAX_TILE_QUEUE = 256;
+    private static final Map<NetHandlerPlayServer, PlayerQueue> queues = new WeakHashMap<>();
+    private static long tick = 0;
+
+    public static boolean isEnabled() {
+        return BCConfig.playerBandwidthBudget > 0;
+    }
+
+    public static void send(PacketCustom packet, EntityPlayerMP player, Priority priority) {
+        send(packet.toPacket(), player, priority, null);
+    }
+
+    /**
+     * Sends a packet containing tile data. See the class javadoc for how tile packets are coalesced.
+     *
+     * @param priority {@link Priority#TILE} or {@link Priority#GUI}
+     * @param tiles    the tiles whose data is in this packet.
+     */
+    public static void sendTileData(Packet<?> packet, EntityPlayerMP player, Priority priority, Collection<? extends TileEntity> tiles) {
+        if (!isEnabled() || player.connection == null) {
+            if (player.connection != null) {
+                sendNow(player.connection, packet);
+            }
+            return;
+        }
+        queues.computeIfAbsent(player.connection, c -> new PlayerQueue()).offerTileData(player.connection, packet, priority, tiles);
+    }
+
+    /**
+     * @param coalesceKey optional. Only applies to cosmetic packets. A queued packet with an equal key will be replaced by this packet.
+     */
+    public static void send(Packet<?> packet, EntityPlayerMP player, Priority priority, @Nullable Object coalesceKey) {
+        if (!isEnabled() || player.connection == null) {
+            if (player.connection != null) {
+                sendNow(player.connection, packet);
+            }
+            return;
+        }
+        queues.computeIfAbsent(player.connection, c -> new PlayerQueue()).offer(player.connection, packet, priority, coalesceKey);
+    }
+
+    /**
+     * Sends the tile's data packet to every player watching the chunk the tile is in.
+     */
+    public static void sendToChunk(PacketCustom packet, TileEntity tile, Priority priority) {
+        if (!isEnabled()) {
+            Packet<?> mcPacket = packet.toPacket();
+            if (NetStats.isEnabled()) {
+                SyncEncoder.getWatchers(tile).forEach(player -> NetStats.sendPacket(mcPacket, player));
+            }
+            else {
+                packet.sendToChunk(tile);
+            }
+            return;
+        }
+        if (!(tile.getWorld() instanceof WorldServer)) {
+            return;
+        }
+        WorldServer world = (WorldServer) tile.getWorld();
+        PlayerChunkMap chunkMap = world.getPlayerChunkMap();
+        int chunkX = tile.getPos().getX() >> 4;
+        int chunkZ = tile.getPos().getZ() >> 4;
+        Packet<?> mcPacket = packet.toPacket();
+        List<TileEntity> tiles = Collections.singletonList(tile);
+        for (EntityPlayer player : world.playerEntities) {
+            if (player instanceof EntityPlayerMP && chunkMap.isPlayerWatchingChunk((EntityPlayerMP) player, chunkX, chunkZ)) {
+                sendTileData(mcPacket, (EntityPlayerMP) player, priority, tiles);
+            }
+        }
+    }
+
+    /**
+     * Sends the packet to every player in the given world within range of the given position.
+     */
+    public static void sendToAllAround(Packet<?> packet, World world, double x, double y, double z, double range, Priority priority, @Nullable Object coalesceKey) {
+        for (EntityPlayer player : world.playerEntities) {
+            if (player instanceof EntityPlayerMP && player.getDistanceSq(x, y, z) <= range * range) {
+                send(packet, (EntityPlayerMP) player, priority, coalesceKey);
+            }
+        }
+    }
+
+    @SubscribeEvent
+    public void serverTick(TickEvent.ServerTickEvent event) {
+        if (event.phase != TickEvent.Phase.END || queues.isEmpty()) {
+            return;
+        }
+        tick++;
+        int budget = BCConfig.playerBandwidthBudget;
+        Iterator<Map.Entry<NetHandlerPlayServer, PlayerQueue>> iterator = queues.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<NetHandlerPlayServer, PlayerQueue> entry = iterator.next();
+            PlayerQueue queue = entry.getValue();
+            //If the budget has been disabled just send everything that is left.
+            queue.flush(entry.getKey(), budget <= 0 ? Integer.MAX_VALUE : budget);
+            if (queue.isIdle(budget)) {
+                iterator.remove();
+            }
+        }
+    }
+
+    @SubscribeEvent
+    public void playerLogout(PlayerEvent.PlayerLoggedOutEvent event) {
+        if (event.player instanceof EntityPlayerMP) {
+            queues.remove(((EntityPlayerMP) event.player).connection);
+        }
+    }
+
+    private static void sendNow(NetHandlerPlayServer connection, Packet<?> packet) {
+        NetStats.recordPacket(packet, connection.player);
+        connection.sendPacket(packet);
+    }
+
+    private static int sizeOf(Packet<?> packet) {
+        return packet instanceof FMLProxyPacket ? ((FMLProxyPacket) packet).payload().readableBytes() : 64;
+    }
+
+    private static class PlayerQueue {
+        private long credit = Long.MIN_VALUE;
+        private long nextOrder = 0;
+        private final ArrayDeque<QueuedPacket> tilePackets = new ArrayDeque<>();
+        private final Map<TileEntity, QueuedPacket> queuedTiles = new HashMap<>();
+        private final ArrayDeque<QueuedPacket> cosmeticPackets = new ArrayDeque<>();
+
+        private void offer(NetHandlerPlayServer connection, Packet<?> packet, Priority priority, @Nullable Object coalesceKey) {
+            if (credit == Long.MIN_VALUE) {
+                credit = (long) BCConfig.playerBandwidthBudget * BURST_TICKS;
+            }
+            int size = sizeOf(packet);
+            switch (priority) {
+                case GUI:
+                    sendNow(connection, packet);
+                    credit = Math.max(0, credit - size);
+                    break;
+                case TILE:
+                    offerTileData(connection, packet, priority, Collections.emptyList());
+                    break;
+                case COSMETIC:
+                    if (tilePackets.isEmpty() && cosmeticPackets.isEmpty() && credit >= size) {
+                        sendNow(connection, packet);
+                        credit -= size;
+                        break;
+                    }
+                    if (coalesceKey != null) {
+                        for (QueuedPacket queued : cosmeticPackets) {
+                            if (Objects.equals(queued.coalesceKey, coalesceKey)) {
+                                queued.packet = packet;
+                                queued.size = size;
+                                return;
+                            }
+                        }
+                    }
+                    if (cosmeticPackets.size() < MAX_COSMETIC_QUEUE) {
+                        cosmeticPackets.add(new QueuedPacket(packet, size, coalesceKey));
+                    }
+                    break;
+            }
+        }
+
+        private void offerTileData(NetHandlerPlayServer connection, Packet<?> packet, Priority priority, Collection<? extends TileEntity> tiles) {
+            if (priority != Priority.TILE) {
+                //Anything still queued for these tiles is older than this packet so it has to arrive first.
+                flushTiles(connection, tiles);
+                offer(connection, packet, priority, null);
+                return;
+            }
+            if (credit == Long.MIN_VALUE) {
+                credit = (long) BCConfig.playerBandwidthBudget * BURST_TICKS;
+            }
+            int size = sizeOf(packet);
+            if (tilePackets.isEmpty() && credit >= size) {
+                sendNow(connection, packet);
+                credit -= size;
+                return;
+            }
+
+            //Find the earliest queued entry that contains any of these tiles.
+            QueuedPacket target = null;
+            for (TileEntity tile : tiles) {
+                QueuedPacket queued = queuedTiles.get(tile);
+                if (queued != null && (target == null || queued.order < target.order)) {
+                    target = queued;
+                }
+            }
+
+            if (target == null && tilePackets.size() >= MAX_TILE_QUEUE && !tiles.isEmpty()) {
+                //Packets that do not specify their tiles can not be resynced so they are never merged.
+                Iterator<QueuedPacket> iterator = tilePackets.descendingIterator();
+                while (iterator.hasNext() && target == null) {
+                    QueuedPacket queued = iterator.next();
+                    target = queued.tiles.isEmpty() ? null : queued;
+                }
+            }
+
+            if (target == null) {
+                QueuedPacket queued = new QueuedPacket(packet, size, null);
+                queued.tiles = tiles;
+                queued.order = nextOrder++;
+                tilePackets.add(queued);
+                tiles.forEach(tile -> queuedTiles.put(tile, queued));
+                return;
+            }
+
+            //Everything queued for these tiles along with this packet is replaced by a single resync entry in the position of the earliest one.
+            //The tiles in the merged entries are not in any entry between them so moving them forward does not change the order of anything else.
+            Set<TileEntity> merged = new HashSet<>(target.tiles);
+            merged.addAll(tiles);
+            for (TileEntity tile : tiles) {
+                QueuedPacket queued = queuedTiles.get(tile);
+                if (queued != null && queued != target && tilePackets.remove(queued)) {
+                    merged.addAll(queued.tiles);
+                }
+            }
+            QueuedPacket resync = target;
+            resync.packet = null;
+            resync.size = 0;
+            resync.tiles = merged;
+            merged.forEach(tile -> queuedTiles.put(tile, resync));
+        }
+
+        /**
+         * Immediately sends every queued entry that contains any of the given tiles.
+         */
+        private void flushTiles(NetHandlerPlayServer connection, Collection<? extends TileEntity> tiles) {
+            boolean queued = false;
+            for (TileEntity tile : tiles) {
+                if (queuedTiles.containsKey(tile)) {
+                    queued = true;
+                    break;
+                }
+            }
+            if (!queued) {
+                return;
+            }
+            Iterator<QueuedPacket> iterator = tilePackets.iterator();
+            while (iterator.hasNext()) {
+                QueuedPacket entry = iterator.next();
+                for (TileEntity tile : tiles) {
+                    if (queuedTiles.get(tile) == entry) {
+                        iterator.remove();
+                        credit = Math.max(0, credit - sendTileEntry(connection, entry));
+                        break;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Sends a queued tile entry. Resync entries send the current update packet of each of their tiles.
+         *
+         * @return the number of bytes sent.
+         */
+        private long sendTileEntry(NetHandlerPlayServer connection, QueuedPacket entry) {
+            entry.tiles.forEach(queuedTiles::remove);
+            if (entry.packet != null) {
+                sendNow(connection, entry.packet);
+                return entry.size;
+            }
+            long size = 0;
+            for (TileEntity tile : entry.tiles) {
+                if (tile.isInvalid() || !(tile.getWorld() instanceof WorldServer) || connection.player.world != tile.getWorld()) {
+                    continue;
+                }
+                if (!((WorldServer) tile.getWorld()).getPlayerChunkMap().isPlayerWatchingChunk(connection.player, tile.getPos().getX() >> 4, tile.getPos().getZ() >> 4)) {
+                    continue;
+                }
+                SPacketUpdateTileEntity update = tile.getUpdatePacket();
+                if (update != null) {
+                    sendNow(connection, update);
+                    size += sizeOf(update);
+                }
+            }
+            return size;
+        }
+
+        private void flush(NetHandlerPlayServer connection, long budget) {
+            credit = Math.min(credit + budget, budget * BURST_TICKS);
+            //A packet is sent as long as there is any credit left so packets larger than the budget still make progress.
+            while (!tilePackets.isEmpty() && credit > 0) {
+                credit -= sendTileEntry(connection, tilePackets.poll());
+            }
+
+            cosmeticPackets.removeIf(queued -> tick - queued.queueTick > MAX_COSMETIC_AGE);
+            while (tilePackets.isEmpty() && !cosmeticPackets.isEmpty() && credit > 0) {
+                QueuedPacket queued = cosmeticPackets.poll();
+                sendNow(connection, queued.packet);
+                credit -= queued.size;
+            }
+        }
+
+        private boolean isIdle(long budget) {
+            return tilePackets.isEmpty() && cosmeticPackets.isEmpty() && credit >= budget * BURST_TICKS;
+        }
+    }
+
+    private static class QueuedPacket {
+        /**
+         * Null if this is a tile resync entry.
+         */
+        private Packet<?> packet;
+        private int size;
+        private final Object coalesceKey;
+        private final long queueTick = tick;
+        /**
+         * Tile packets only. The tiles whose data is in this packet.
+         */
+        private Collection<? extends TileEntity> tiles = Collections.emptyList();
+        private long order = 0;
+
+        private QueuedPacket(Packet<?> packet, int size, Object coalesceKey) {
+            this.packet = packet;
+            this.size = size;
+            this.coalesceKey = coalesceKey;
+        }
+    }
+}
@@ -1,10 +1,19 @@
 package com.brandon3055.brandonscore.network;
 
 import codechicken.lib.packet.PacketCustom;
+import com.brandon3055.brandonscore.BrandonsCore;
+import com.brandon3055.brandonscore.network.OutboundPacketScheduler.Priority;
 import com.brandon3055.brandonscore.registry.ModConfigParser;
 import com.brandon3055.brandonscore.utils.LogHelperBC;
 import net.minecraft.entity.player.EntityPlayer;
 import net.minecraft.entity.player.EntityPlayerMP;
+import net.minecraft.network.NetHandlerPlayServer;
+import net.minecraft.network.Packet;
+import net.minecraft.world.World;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.WeakHashMap;
 
 import static com.brandon3055.brandonscore.BrandonsCore.NET_CHANNEL;
 
@@ -20,28 +29,61 @@ public class PacketDispatcher {
     public static final int C_PLAYER_ACCESS = 5;
     public static final int C_PLAYER_ACCESS_UPDATE = 6;
     public static final int C_INDEXED_LOCALIZED_CHAT = 7;
+    public static final int C_TILE_DATA_CHUNK = 8;
+    public static final int C_TILE_DATA_NBT = 9;
+    public static final int C_SERVER_CONFIG_HASH = 10;
 
     public static final int S_TILE_MESSAGE = 1;
     public static final int S_PLAYER_ACCESS_BUTTON = 2;
+    public static final int S_TILE_DATA_SCHEMA = 3;
+    public static final int S_CONFIG_REQUEST = 4;
+
+    /**
+     * Connections that have been sent the full config since they were last sent the config hash. Each hash only gets one reply.
+     */
+    private static final Set<NetHandlerPlayServer> configSent = Collections.newSetFromMap(new WeakHashMap<>());
 
+    /**
+     * Sends the hash of the server config. The client will request the full config if it does not have it cached. See {@link ModConfigParser#getSyncHash()}
+     */
     public static void sendConfigToClient(EntityPlayerMP player) {
+        PacketCustom packet = new PacketCustom(NET_CHANNEL, C_SERVER_CONFIG_HASH);
+        packet.writeLong(ModConfigParser.getSyncHash());
+        configSent.remove(player.connection);
+        OutboundPacketScheduler.send(packet, player, Priority.GUI);
+        LogHelperBC.dev("Sending Config Hash To Client: " + player);
+    }
+
+    /**
+     * Sends the full config in reply to a client's config request. Repeat requests are ignored until the client is sent the config hash again.
+     */
+    public static void sendConfigDataToClient(EntityPlayerMP player) {
+        if (player.connection == null || !configSent.add(player.connection)) {
+            LogHelperBC.dev("Ignoring repeat config request from: " + player);
+            return;
+        }
         PacketCustom packet = new PacketCustom(NET_CHANNEL, C_SERVER_CONFIG_SYNC);
         ModConfigParser.writeConfigForSync(packet);
-        packet.sendToPlayer(player);
+        OutboundPacketScheduler.send(packet, player, Priority.GUI);
         LogHelperBC.dev("Sending Config To Client: " + player);
     }
 
+    public static void sendConfigRequest() {
+        PacketCustom packet = new PacketCustom(NET_CHANNEL, S_CONFIG_REQUEST);
+        packet.sendToServer();
+    }
+
     public static void sendNoClip(EntityPlayerMP player, boolean enabled) {
-        PacketCustom packet = new PacketCustom(NET_CHANNEL, C_SERVER_CONFIG_SYNC);
+        PacketCustom packet = new PacketCustom(NET_CHANNEL, C_NO_CLIP);
         packet.writeBoolean(enabled);
-        packet.sendToPlayer(player);
+        OutboundPacketScheduler.send(packet, player, Priority.GUI);
         LogHelperBC.dev("Sending NoClip update to player: " + player + " Enabled: " + enabled);
     }
 
     public static void sendOpenPlayerAccessUI(EntityPlayerMP player, int windowID) {
         PacketCustom packet = new PacketCustom(NET_CHANNEL, C_PLAYER_ACCESS);
         packet.writeInt(windowID);
-        packet.sendToPlayer(player);
+        OutboundPacketScheduler.send(packet, player, Priority.GUI);
     }
 
     public static void sendPlayerAccessUIUpdate(EntityPlayerMP player, EntityPlayer target) {
@@ -49,7 +91,7 @@ public class PacketDispatcher {
         packet.writeString(target.getName());
         packet.writePos(target.getPosition());
         packet.writeInt(target.dimension);
-        packet.sendToPlayer(player);
+        OutboundPacketScheduler.send(packet, player, Priority.GUI);
     }
 
     public static void sendPlayerAccessButton(int button) {
@@ -62,6 +104,32 @@ public class PacketDispatcher {
         PacketCustom packet = new PacketCustom(NET_CHANNEL, C_INDEXED_LOCALIZED_CHAT);
         packet.writeString(unlocalizedText);
         packet.writeInt(index);
-        packet.sendToPlayer(player);
+        OutboundPacketScheduler.send(packet, player, Priority.GUI);
+    }
+
+    /**
+     * Sends a BCoreNet message to the given player. If the player is hosting this integrated server the message is handed to the client directly.
+     * See {@link LoopbackTransport}
+     */
+    public static void sendTo(ILoopbackMessage message, EntityPlayerMP player, Priority priority) {
+        if (!LoopbackTransport.trySend(message, player)) {
+            OutboundPacketScheduler.send(BrandonsCore.network.getPacketFrom(message), player, priority, null);
+        }
+    }
+
+    /**
+     * Sends a BCoreNet message to every player in the given world within range of the given position.
+     * The packet is only encoded if there is at least one player other than the local client in range. See {@link LoopbackTransport}
+     */
+    public static void sendToAllAround(ILoopbackMessage message, World world, double x, double y, double z, double range, Priority priority) {
+        Packet<?> packet = null;
+        for (EntityPlayer player : world.playerEntities) {
+            if (player instanceof EntityPlayerMP && player.getDistanceSq(x, y, z) <= range * range && !LoopbackTransport.trySend(message, (EntityPlayerMP) player)) {
+                if (packet == null) {
+                    packet = BrandonsCore.network.getPacketFrom(message);
+                }
+                OutboundPacketScheduler.send(packet, (EntityPlayerMP) player, priority, null);
+            }
+        }
     }
 }
@@ -10,7 +10,7 @@ import net.minecraftforge.fml.relauncher.Side;
 /**
  * Created by brandon3055 on 23/4/2016.
  */
-public class PacketSpawnParticle implements IMessage {
+public class PacketSpawnParticle implements ILoopbackMessage {
 
     private int particleID;
     private double xCoord;
@@ -37,6 +37,11 @@ public class PacketSpawnParticle implements IMessage {
         this.args = args;
     }
 
+    @Override
+    public void handleClient() {
+        BCEffectHandler.spawnFX(particleID, BrandonsCore.proxy.getClientWorld(), xCoord, yCoord, zCoord, xSpeed, ySpeed, zSpeed, viewRange, args);
+    }
+
     @Override
     public void toBytes(ByteBuf buf) {
         buf.writeInt(particleID);
@@ -77,7 +82,7 @@ public class PacketSpawnParticle implements IMessage {
         public IMessage handleMessage(PacketSpawnParticle message, MessageContext ctx) {
 
             if (ctx.side == Side.CLIENT) {
-                BCEffectHandler.spawnFX(message.particleID, BrandonsCore.proxy.getClientWorld(), message.xCoord, message.yCoord, message.zCoord, message.xSpeed, message.ySpeed, message.zSpeed, message.viewRange, message.args);
+                message.handleClient();
             }
 
             return null;
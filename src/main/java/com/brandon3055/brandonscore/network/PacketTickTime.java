@@ -12,7 +12,7 @@ import java.util.Map;
 /**
  * Created by brandon3055 on 27/07/2016.
  */
-public class PacketTickTime implements IMessage {
+public class PacketTickTime implements ILoopbackMessage {
 
     public Map<Integer, Integer> tickTimes;
     public int overall;
@@ -24,6 +24,10 @@ public class PacketTickTime implements IMessage {
         this.overall = overall;
     }
 
+    @Override
+    public void handleClient() {
+        BCClientEventHandler.handleTickPacket(this);
+    }
 
     @Override
     public void toBytes(ByteBuf buf) {
@@ -52,7 +56,7 @@ public class PacketTickTime implements IMessage {
         public IMessage handleMessage(PacketTickTime message, MessageContext ctx) {
 
             if (ctx.side == Side.CLIENT) {
-                BCClientEventHandler.handleTickPacket(message);
+                message.handleClient();
             }
 
             return null;
@@ -40,7 +40,7 @@ public class PacketUpdateMount implements IMessage {
                     ctx.getServerHandler().player.dismountRidingEntity();
                     return null;
                 } else if (ctx.getServerHandler().player.getRidingEntity() != null) {
-                    BrandonsCore.network.sendTo(new PacketUpdateMount(ctx.getServerHandler().player.getRidingEntity().getEntityId()), ctx.getServerHandler().player);
+                    OutboundPacketScheduler.send(BrandonsCore.network.getPacketFrom(new PacketUpdateMount(ctx.getServerHandler().player.getRidingEntity().getEntityId())), ctx.getServerHandler().player, OutboundPacketScheduler.Priority.GUI, null);
                     return null;
                 }
                 return null;
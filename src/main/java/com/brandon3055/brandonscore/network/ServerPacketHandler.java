@@ -6,7 +6,10 @@ import com.brandon3055.brandonscore.blocks.TileBCBase;
 import com.brandon3055.brandonscore.command.BCUtilCommands.OfflinePlayer;
 import com.brandon3055.brandonscore.inventory.ContainerPlayerAccess;
 import com.brandon3055.brandonscore.lib.TeleportUtils;
+import com.brandon3055.brandonscore.lib.datamanager.IDataManagerProvider;
+import com.brandon3055.brandonscore.lib.datamanager.TileDataManager;
 import com.brandon3055.brandonscore.utils.LogHelperBC;
+import com.brandon3055.brandonscore.utils.ServerProfiler;
 import net.minecraft.entity.player.EntityPlayer;
 import net.minecraft.entity.player.EntityPlayerMP;
 import net.minecraft.network.play.INetHandlerPlayServer;
@@ -19,13 +22,36 @@ import net.minecraft.util.text.TextFormatting;
 public class ServerPacketHandler implements ICustomPacketHandler.IServerPacketHandler {
     @Override
     public void handlePacket(PacketCustom packet, EntityPlayerMP sender, INetHandlerPlayServer handler) {
+        long start = ServerProfiler.start();
+        handle(packet, sender);
+        ServerProfiler.recordPacket(packet.getType(), start);
+    }
+
+    private void handle(PacketCustom packet, EntityPlayerMP sender) {
         try {
             if (packet.getType() == PacketDispatcher.S_TILE_MESSAGE) {
+                if (!TileMessageGuard.checkRate(sender)) {
+                    return;
+                }
                 BlockPos pos = packet.readPos();
                 TileEntity tile = sender.world.getTileEntity(pos);
-                if (tile instanceof TileBCBase && ((TileBCBase) tile).verifyPlayerPermission(sender)) {
+                if (tile instanceof TileBCBase && TileMessageGuard.hasPermission(sender, (TileBCBase) tile)) {
                     int id = packet.readByte() & 0xFF;
+                    long start = ServerProfiler.start();
                     ((TileBCBase) tile).receivePacketFromClient(packet, sender, id);
+                    ServerProfiler.recordTile(tile, start);
+                }
+            }
+            else if (packet.getType() == PacketDispatcher.S_CONFIG_REQUEST) {
+                PacketDispatcher.sendConfigDataToClient(sender);
+            }
+            else if (packet.getType() == PacketDispatcher.S_TILE_DATA_SCHEMA) {
+                BlockPos pos = packet.readPos();
+                if (sender.world.isBlockLoaded(pos)) {
+                    TileEntity tile = sender.world.getTileEntity(pos);
+                    if (tile instanceof IDataManagerProvider && ((IDataManagerProvider) tile).getDataManager() instanceof TileDataManager) {
+                        ((TileDataManager) ((IDataManagerProvider) tile).getDataManager()).onSchemaMismatch(sender);
+                    }
                 }
             }
         }
@@ -0,0 +1,165 @@
+package com.brandon3055.brandonscore.network;
+
+import com.brandon3055.brandonscore.BCConfig;
+import com.brandon3055.brandonscore.blocks.TileBCBase;
+import com.brandon3055.brandonscore.utils.LogHelperBC;
+import net.minecraft.entity.player.EntityPlayerMP;
+import net.minecraft.tileentity.TileEntity;
+import net.minecraft.world.World;
+import net.minecraftforge.event.world.BlockEvent;
+import net.minecraftforge.event.world.WorldEvent;
+import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+import net.minecraftforge.fml.common.gameevent.PlayerEvent;
+import net.minecraftforge.fml.common.gameevent.TickEvent;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Guards client to server tile messages (see {@link TileBCBase#sendPacketToServer(java.util.function.Consumer, int)}).
+ * <p>
+ * Permission checks post a {@link net.minecraftforge.event.entity.player.PlayerInteractEvent.RightClickBlock} which can be expensive when permission mods
+ * are installed so the result is cached per player and position for a few ticks (see the "tileMessagePermissionCache" config option).
+ * A cached decision is discarded when the block at that position changes, the tile at that position is replaced or the player changes dimension.
+ * <p>
+ * Each player also has a token bucket that limits how many tile messages they can send per second (see the "tileMessageRateLimit" config option).
+ * Messages over the limit are dropped before the tile or the permission check is touched.
+ */
+public class TileMessageGuard {
+
+    private static final int CLEANUP_INTERVAL = 200;
+    private static final Map<Integer, Map<Long, Map<UUID, Decision>>> permissionCache = new ConcurrentHashMap<>();
+    private static final Map<UUID, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+    /**
+     * @return false if the player has exceeded their tile message rate limit and this message should be dropped.
+     */
+    public static boolean checkRate(EntityPlayerMP player) {
+        int rate = BCConfig.tileMessageRateLimit;
+        if (rate <= 0) {
+            return true;
+        }
+        TokenBucket bucket = buckets.computeIfAbsent(player.getUniqueID(), uuid -> new TokenBucket(rate));
+        if (bucket.tryTake(rate)) {
+            return true;
+        }
+        if (bucket.dropped++ == 0) {
+            LogHelperBC.dev("Player " + player.getName() + " has exceeded the tile message rate limit. Messages are being dropped.");
+        }
+        return false;
+    }
+
+    /**
+     * @return true if the player is allowed to interact with the given tile. Uses a cached decision if one is available.
+     */
+    public static boolean hasPermission(EntityPlayerMP player, TileBCBase tile) {
+        int ttl = BCConfig.tileMessagePermissionCache;
+        if (ttl <= 0) {
+            return tile.verifyPlayerPermission(player);
+        }
+
+        World world = tile.getWorld();
+        long time = world.getTotalWorldTime();
+        Map<UUID, Decision> decisions = permissionCache.computeIfAbsent(world.provider.getDimension(), dim -> new ConcurrentHashMap<>()).computeIfAbsent(tile.getPos().toLong(), pos -> new ConcurrentHashMap<>());
+        Decision decision = decisions.get(player.getUniqueID());
+        if (decision != null && decision.tile == tile && decision.expires > time) {
+            return decision.allowed;
+        }
+
+        boolean allowed = tile.verifyPlayerPermission(player);
+        decisions.put(player.getUniqueID(), new Decision(tile, allowed, time + ttl));
+        return allowed;
+    }
+
+    private static void invalidatePlayer(UUID player) {
+        permissionCache.values().forEach(positions -> positions.values().forEach(decisions -> decisions.remove(player)));
+    }
+
+    @SubscribeEvent
+    public void blockChanged(BlockEvent.NeighborNotifyEvent event) {
+        Map<Long, Map<UUID, Decision>> positions = permissionCache.get(event.getWorld().provider.getDimension());
+        if (positions != null) {
+            positions.remove(event.getPos().toLong());
+        }
+    }
+
+    @SubscribeEvent
+    public void blockBroken(BlockEvent.BreakEvent event) {
+        Map<Long, Map<UUID, Decision>> positions = permissionCache.get(event.getWorld().provider.getDimension());
+        if (positions != null) {
+            positions.remove(event.getPos().toLong());
+        }
+    }
+
+    @SubscribeEvent
+    public void changedDimension(PlayerEvent.PlayerChangedDimensionEvent event) {
+        invalidatePlayer(event.player.getUniqueID());
+    }
+
+    @SubscribeEvent
+    public void playerLogout(PlayerEvent.PlayerLoggedOutEvent event) {
+        invalidatePlayer(event.player.getUniqueID());
+        buckets.remove(event.player.getUniqueID());
+    }
+
+    @SubscribeEvent
+    public void worldUnload(WorldEvent.Unload event) {
+        if (!event.getWorld().isRemote) {
+            permissionCache.remove(event.getWorld().provider.getDimension());
+        }
+    }
+
+    @SubscribeEvent
+    public void worldTick(TickEvent.WorldTickEvent event) {
+        if (event.phase != TickEvent.Phase.END || event.world.isRemote) {
+            return;
+        }
+        long time = event.world.getTotalWorldTime();
+        if (time % CLEANUP_INTERVAL != 0) {
+            return;
+        }
+        Map<Long, Map<UUID, Decision>> positions = permissionCache.get(event.world.provider.getDimension());
+        if (positions != null) {
+            positions.values().forEach(decisions -> decisions.values().removeIf(decision -> decision.expires <= time || decision.tile.isInvalid()));
+            positions.values().removeIf(Map::isEmpty);
+        }
+    }
+
+    private static class Decision {
+        private final TileEntity tile;
+        private final boolean allowed;
+        private final long expires;
+
+        private Decision(TileEntity tile, boolean allowed, long expires) {
+            this.tile = tile;
+            this.allowed = allowed;
+            this.expires = expires;
+        }
+    }
+
+    private static class TokenBucket {
+        private double tokens;
+        private long lastRefill = System.nanoTime();
+        private int dropped = 0;
+
+        private TokenBucket(int rate) {
+            this.tokens = rate;
+        }
+
+        /**
+         * @param rate tokens per second. This is also the bucket capacity so a player can send up to one second worth of messages in a burst.
+         */
+        private synchronized boolean tryTake(int rate) {
+            long now = System.nanoTime();
+            tokens = Math.min(rate, tokens + (now - lastRefill) * rate / 1000000000D);
+            lastRefill = now;
+            if (tokens >= 1) {
+                tokens--;
+                dropped = 0;
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -1,9 +1,13 @@
 package com.brandon3055.brandonscore.registry;
 
 import codechicken.lib.data.MCDataInput;
+import codechicken.lib.data.MCDataInputWrapper;
 import codechicken.lib.data.MCDataOutput;
+import codechicken.lib.data.MCDataOutputWrapper;
 import com.brandon3055.brandonscore.BCConfig;
 import com.brandon3055.brandonscore.client.gui.config.GuiIncompatibleConfig;
+import com.brandon3055.brandonscore.handlers.FileHandler;
+import com.brandon3055.brandonscore.network.PacketDispatcher;
 import com.brandon3055.brandonscore.registry.ModConfigProperty.ListRestrictions;
 import com.brandon3055.brandonscore.registry.ModConfigProperty.MinMax;
 import com.brandon3055.brandonscore.registry.ModConfigProperty.ValidValues;
@@ -25,12 +29,28 @@ import net.minecraftforge.fml.common.event.FMLPreInitializationEvent;
 import net.minecraftforge.fml.relauncher.ReflectionHelper;
 import net.minecraftforge.fml.relauncher.Side;
 import net.minecraftforge.fml.relauncher.SideOnly;
-
+import org.apache.commons.io.IOUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.lang.reflect.Field;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
 
 import static com.brandon3055.brandonscore.registry.ModFeatureParser.CATEGORY_BLOCKS;
 import static com.brandon3055.brandonscore.registry.ModFeatureParser.CATEGORY_ITEMS;
@@ -46,6 +66,11 @@ public class ModConfigParser {
     private static Map<String, List<PropertyHelper>> modPropertyHelpers = new HashMap<>();
     private static Map<String, List<ConfigCategory>> modConfigCategories = new HashMap<>();
     private static boolean connectedToServer = false;
+    private static Map<String, PropertyHelper> propertyIndex = null;
+    private static byte[] syncPayload = null;
+    private static byte[] syncCompressed = null;
+    private static long syncHash = 0;
+    private static final int MAX_CACHED_CONFIGS = 16;
 
     public static Map<PropertyHelper, Object> propsRequireRestart = new HashMap<>();
 
@@ -125,6 +150,7 @@ public class ModConfigParser {
         }
 
         modConfigurations.forEach(ModFeatureParser::loadModFeatureConfig);
+        invalidateSyncPayload();
     }
 
     public static void addFeatureProperty(String modid, Property prop, String category) {
@@ -135,6 +161,7 @@ public class ModConfigParser {
         }
 
         modPropertyHelpers.computeIfAbsent(modid, s -> new ArrayList<>()).add(new PropertyHelper(modid, prop, category));
+        invalidateSyncPayload();
     }
 
     //endregion
@@ -177,26 +204,119 @@ public class ModConfigParser {
         if (modConfigurations.get(modid).hasChanged()) {
             modConfigurations.get(modid).save();
         }
+        invalidateSyncPayload();
     }
 
     //endregion
 
     //region Config client Sync
 
+    /**
+     * Server side. The synced config is written once (see {@link #buildSyncPayload()}) and identified by a hash of its content.
+     * On login the client is sent only the hash. If the client has already received a config with that hash (from this or any other server)
+     * it applies its cached copy. Otherwise it requests the config and is sent the deflated payload which it then caches.
+     */
+    public static long getSyncHash() {
+        buildSyncPayload();
+        return syncHash;
+    }
+
     public static void writeConfigForSync(MCDataOutput output) {
+        buildSyncPayload();
+        output.writeLong(syncHash);
+        output.writeVarInt(syncCompressed.length);
+        output.writeArray(syncCompressed);
+    }
+
+    /**
+     * Payload format: [disableInvasiveGui] [property count] then for each synced property sorted by "modid:name"
+     * [modid:name] [type byte, see {@link PropertyHelper#writeSyncValue(MCDataOutput)}] [typed value(s)]
+     */
+    private static void buildSyncPayload() {
+        if (syncPayload != null) {
+            return;
+        }
+        List<PropertyHelper> props = new ArrayList<>();
+        modPropertyHelpers.values().forEach(modProps -> DataUtils.addIf(modProps, props, prop -> prop.property != null && (prop.requiresSync || prop.autoSync)));
+        props.sort(Comparator.comparing(prop -> prop.modid + ":" + prop.name));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        MCDataOutput output = new MCDataOutputWrapper(new DataOutputStream(bytes));
         output.writeBoolean(BCConfig.disableInvasiveGui);
+        output.writeVarInt(props.size()); //Just in case the client has an extra mod or something i don't want to assume it has all the same props as the server.
+        for (PropertyHelper prop : props) {
+            output.writeString(prop.modid + ":" + prop.name);
+            prop.writeSyncValue(output);
+        }
 
-        int propCount = 0;
-        for (List<PropertyHelper> modProps : modPropertyHelpers.values()) {
-            propCount += DataUtils.count(modProps, prop -> prop.requiresSync || prop.autoSync);
+        syncPayload = bytes.toByteArray();
+        syncHash = hash(syncPayload);
+        try {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            try (DeflaterOutputStream deflater = new DeflaterOutputStream(compressed, new Deflater(Deflater.BEST_COMPRESSION))) {
+                deflater.write(syncPayload);
+            }
+            syncCompressed = compressed.toByteArray();
+        }
+        catch (IOException e) {
+            //Can not actually happen with a byte array stream
+            throw new RuntimeException(e);
         }
+        LogHelperBC.dev("Built config sync payload. " + props.size() + " properties, " + syncPayload.length + " bytes, " + syncCompressed.length + " compressed");
+    }
 
-        output.writeVarInt(propCount); //Just in case the client has an extra mod or something i don't want to assume it has all the same props as the server.
-        modPropertyHelpers.forEach((s, props) -> DataUtils.forEachMatch(props, prop -> prop.requiresSync || prop.autoSync, prop -> prop.writeToBytes(output)));
+    private static void invalidateSyncPayload() {
+        syncPayload = null;
+        syncCompressed = null;
+        propertyIndex = null;
+    }
+
+    /**
+     * Client side. Called with the hash of the server's config on login.
+     */
+    @SideOnly(Side.CLIENT)
+    public static void receiveConfigHash(MCDataInput input) {
+        long hash = input.readLong();
+        byte[] cached = readCachedConfig(hash);
+        if (cached != null && applyConfigSync(cached, hash)) {
+            LogHelperBC.dev("Applied cached server config: " + Long.toHexString(hash));
+            return;
+        }
+        PacketDispatcher.sendConfigRequest();
     }
 
     @SideOnly(Side.CLIENT)
     public static void readConfigForSync(MCDataInput input) {
+        long hash = input.readLong();
+        byte[] compressed = input.readArray(input.readVarInt());
+
+        byte[] payload;
+        try {
+            payload = IOUtils.toByteArray(new InflaterInputStream(new ByteArrayInputStream(compressed)));
+        }
+        catch (IOException e) {
+            LogHelperBC.error("Failed to decompress the config sent by the server");
+            e.printStackTrace();
+            return;
+        }
+
+        if (applyConfigSync(payload, hash)) {
+            writeCachedConfig(hash, payload);
+        }
+        else {
+            LogHelperBC.error("The config sent by the server is invalid");
+        }
+    }
+
+    /**
+     * @return false if the payload does not match the hash.
+     */
+    @SideOnly(Side.CLIENT)
+    private static boolean applyConfigSync(byte[] payload, long hash) {
+        if (hash(payload) != hash) {
+            return false;
+        }
+        MCDataInput input = new MCDataInputWrapper(new DataInputStream(new ByteArrayInputStream(payload)));
         boolean disableGui = input.readBoolean();
 
         int propCount = input.readVarInt();
@@ -205,21 +325,15 @@ public class ModConfigParser {
 
         for (int i = 0; i < propCount; i++) {
             String propStr = input.readString();
-            String propMod = propStr.substring(0, propStr.indexOf(":"));
-            String propName = propStr.substring(propStr.indexOf(":") + 1);
-            PropertyHelper prop = findProperty(propMod, propName);
+            PropertyHelper prop = getPropertyIndex().get(propStr);
+            Object value = PropertyHelper.readSyncValue(input);
 
             if (prop != null) {
-                String[] propValues = {};
-                String propValue = "";
-                if (prop.isArray) {
-                    propValues = new String[input.readVarInt()];
-                    for (int c = 0; c < propValues.length; c++) {
-                        propValues[c] = input.readString();
-                    }
-                }
-                else {
-                    propValue = input.readString();
+                String[] propValues = value instanceof String[] ? (String[]) value : new String[0];
+                String propValue = value instanceof String ? (String) value : "";
+                if (prop.isArray != value instanceof String[]) {
+                    LogHelperBC.warn("Server config property " + propStr + " does not match the client property type. It will be ignored");
+                    continue;
                 }
 
                 if (prop.autoSync) {
@@ -227,13 +341,12 @@ public class ModConfigParser {
                 }
                 else if (prop.requiresSync) {
                     prop.serverLock = true;
-                    if (!prop.property.getString().equals(propValue)) {
+                    if (!prop.matches(propValue, propValues)) {
                         propsRequireRestart.put(prop, prop.isArray ? propValues : propValue);
                     }
                 }
             }
         }
-
         if (propsRequireRestart.size() > 0) {
             if (disableGui){
                 ITextComponent message = new TextComponentString(TextFormatting.RED + "[Warning] " + TextFormatting.GOLD + "" + //
@@ -250,6 +363,64 @@ public class ModConfigParser {
             }
         }
         connectedToServer = true;
+        return true;
+    }
+
+    @SideOnly(Side.CLIENT)
+    private static File getConfigCacheFile(long hash) {
+        return new File(new File(FileHandler.brandon3055Folder, "config_sync_cache"), Long.toHexString(hash) + ".bin");
+    }
+
+    @SideOnly(Side.CLIENT)
+    private static byte[] readCachedConfig(long hash) {
+        File file = getConfigCacheFile(hash);
+        if (!file.exists()) {
+            return null;
+        }
+        try (InputStream is = new FileInputStream(file)) {
+            return IOUtils.toByteArray(is);
+        }
+        catch (IOException e) {
+            LogHelperBC.warn("Failed to read cached server config " + file);
+            return null;
+        }
+    }
+
+    @SideOnly(Side.CLIENT)
+    private static void writeCachedConfig(long hash, byte[] payload) {
+        File file = getConfigCacheFile(hash);
+        File folder = file.getParentFile();
+        if (!folder.exists() && !folder.mkdirs()) {
+            LogHelperBC.warn("Failed to create config cache folder " + folder);
+            return;
+        }
+        try (OutputStream os = new FileOutputStream(file)) {
+            os.write(payload);
+        }
+        catch (IOException e) {
+            LogHelperBC.warn("Failed to cache server config " + file);
+            return;
+        }
+
+        File[] cached = folder.listFiles((dir, name) -> name.endsWith(".bin"));
+        if (cached != null && cached.length > MAX_CACHED_CONFIGS) {
+            Arrays.sort(cached, Comparator.comparingLong(File::lastModified));
+            for (int i = 0; i < cached.length - MAX_CACHED_CONFIGS; i++) {
+                if (!cached[i].delete()) {
+                    LogHelperBC.warn("Failed to delete old cached server config " + cached[i]);
+                }
+            }
+        }
+    }
+
+    private static long hash(byte[] bytes) {
+        //64 bit FNV-1a
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : bytes) {
+            hash ^= b & 0xFF;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
     }
 
     public static void disconnectFromServer() {
@@ -300,6 +471,17 @@ public class ModConfigParser {
 
     //region Misc helpers
 
+    /**
+     * @return all properties keyed by "modid:name"
+     */
+    private static Map<String, PropertyHelper> getPropertyIndex() {
+        if (propertyIndex == null) {
+            propertyIndex = new HashMap<>();
+            modPropertyHelpers.values().forEach(props -> props.forEach(prop -> propertyIndex.putIfAbsent(prop.modid + ":" + prop.name, prop)));
+        }
+        return propertyIndex;
+    }
+
     public static PropertyHelper findProperty(String modid, String propName) {
         if (modPropertyHelpers.containsKey(modid)) {
             return DataUtils.firstMatch(modPropertyHelpers.get(modid), prop -> prop.name.equals(propName));
@@ -467,7 +649,7 @@ public class ModConfigParser {
                 clientValue = property.getString();
             }
 
-            if (!value.equals(clientValue)) {
+            if (!matches(value, values)) {
                 setPropValue(value, values);
                 writeToField();
                 property.setValue(clientValue);
@@ -560,17 +742,120 @@ public class ModConfigParser {
             }
         }
 
-        public void writeToBytes(MCDataOutput output) {
-            output.writeString(modid + ":" + name);
-            if (isArray) {
-                output.writeVarInt(property.getStringList().length);
-                for (String s : property.getStringList()) {
-                    output.writeString(s);
+        /**
+         * Writes the value of this property as a type byte followed by the typed value(s). Bit 3 of the type is set for lists.
+         * Types: 0 string, 1 boolean, 2 integer, 3 double
+         */
+        public void writeSyncValue(MCDataOutput output) {
+            Property.Type type = property.getType();
+            int typeID = type == Property.Type.BOOLEAN ? 1 : type == Property.Type.INTEGER ? 2 : type == Property.Type.DOUBLE ? 3 : 0;
+            output.writeByte(typeID | (property.isList() ? 8 : 0));
+            if (property.isList()) {
+                switch (typeID) {
+                    case 1:
+                        boolean[] bools = property.getBooleanList();
+                        output.writeVarInt(bools.length);
+                        for (boolean b : bools) output.writeBoolean(b);
+                        break;
+                    case 2:
+                        int[] ints = property.getIntList();
+                        output.writeVarInt(ints.length);
+                        for (int i : ints) DataUtils.writeZigZag(output, i);
+                        break;
+                    case 3:
+                        double[] doubles = property.getDoubleList();
+                        output.writeVarInt(doubles.length);
+                        for (double d : doubles) output.writeDouble(d);
+                        break;
+                    default:
+                        String[] strings = property.getStringList();
+                        output.writeVarInt(strings.length);
+                        for (String str : strings) output.writeString(str);
                 }
             }
             else {
-                output.writeString(property.getString());
+                switch (typeID) {
+                    case 1:
+                        output.writeBoolean(property.getBoolean());
+                        break;
+                    case 2:
+                        DataUtils.writeZigZag(output, property.getInt());
+                        break;
+                    case 3:
+                        output.writeDouble(property.getDouble());
+                        break;
+                    default:
+                        output.writeString(property.getString());
+                }
             }
         }
+
+        /**
+         * Reads a value written by {@link #writeSyncValue(MCDataOutput)}
+         *
+         * @return the value as a String or String[] for lists.
+         */
+        public static Object readSyncValue(MCDataInput input) {
+            int type = input.readByte() & 0xFF;
+            if ((type & 8) != 0) {
+                String[] values = new String[input.readVarInt()];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = readSyncString(input, type & 7);
+                }
+                return values;
+            }
+            return readSyncString(input, type & 7);
+        }
+
+        private static String readSyncString(MCDataInput input, int type) {
+            switch (type) {
+                case 1:
+                    return String.valueOf(input.readBoolean());
+                case 2:
+                    return String.valueOf((int) DataUtils.readZigZag(input));
+                case 3:
+                    return String.valueOf(input.readDouble());
+                default:
+                    return input.readString();
+            }
+        }
+
+        /**
+         * @return the client value of this property in the same form it would be received from the server.
+         */
+        private String getSyncString() {
+            Property.Type type = property.getType();
+            return type == Property.Type.BOOLEAN ? String.valueOf(property.getBoolean()) : type == Property.Type.INTEGER ? String.valueOf(property.getInt()) : type == Property.Type.DOUBLE ? String.valueOf(property.getDouble()) : property.getString();
+        }
+
+        private String[] getSyncStrings() {
+            Property.Type type = property.getType();
+            if (type == Property.Type.BOOLEAN) {
+                boolean[] list = property.getBooleanList();
+                String[] strings = new String[list.length];
+                for (int i = 0; i < list.length; i++) strings[i] = String.valueOf(list[i]);
+                return strings;
+            }
+            else if (type == Property.Type.INTEGER) {
+                int[] list = property.getIntList();
+                String[] strings = new String[list.length];
+                for (int i = 0; i < list.length; i++) strings[i] = String.valueOf(list[i]);
+                return strings;
+            }
+            else if (type == Property.Type.DOUBLE) {
+                double[] list = property.getDoubleList();
+                String[] strings = new String[list.length];
+                for (int i = 0; i < list.length; i++) strings[i] = String.valueOf(list[i]);
+                return strings;
+            }
+            return property.getStringList();
+        }
+
+        /**
+         * @return true if the client value of this property is the same as the given value received from the server.
+         */
+        public boolean matches(String value, String[] values) {
+            return isArray ? Arrays.equals(getSyncStrings(), values) : getSyncString().equals(value);
+        }
     }
 }
@@ -1,6 +1,7 @@
 package com.brandon3055.brandonscore.utils;
 
 import com.brandon3055.brandonscore.client.utils.GuiHelper;
+import com.brandon3055.brandonscore.handlers.FileHandler;
 import net.minecraft.client.Minecraft;
 import net.minecraft.client.gui.ScaledResolution;
 import net.minecraft.client.renderer.GlStateManager;
@@ -10,18 +11,44 @@ import net.minecraftforge.common.MinecraftForge;
 import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
 import net.minecraftforge.fml.common.gameevent.TickEvent;
 
+import java.io.File;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 import static net.minecraft.util.text.TextFormatting.*;
 
 /**
  * Created by brandon3055 on 7/9/2018.
+ * <p>
+ * Each thread records into its own {@link ThreadProfiler} (via a ThreadLocal) so start and stop never lock or allocate.
+ * Sections are identified by {@link ProfilerKey}s which should be created once (see {@link #key(String)}) and stored in a static field.
+ * <p>
+ * Every call to a section is recorded in a {@link LogHistogram}. Each section keeps a histogram per second (the current and the previous second),
+ * one per 5 second period over the last minute and one since the last reset. The histograms for the displayed {@link Window} are only
+ * merged when the debug output is built. Readers may briefly see a window that is being cleared by the owning thread.
+ * <p>
+ * While trace capture is enabled (see {@link #startCapture()}) each thread also records every start and stop into a {@link ProfilerTrace}
+ * which can be exported via {@link #exportTrace(boolean, Consumer)}.
  */
 public class BCProfiler {
+    private static final Map<String, ProfilerKey> keys = new ConcurrentHashMap<>();
+    private static final AtomicInteger nextKeyID = new AtomicInteger();
+    private static final int MINUTE_SLOTS = 12;
+    private static final long MINUTE_SLOT_SECONDS = 5;
+    private static final long NONE = Long.MIN_VALUE;
+
     public static ProfilerInstance RENDER = new ProfilerInstance("Render");
     public static ProfilerInstance TICK = new ProfilerInstance("Tick");
 
     public static boolean enableProfiler = false;
+    public static Window window = Window.SECOND;
+    private static volatile boolean capture = false;
+    private static volatile long captureStart = 0;
     public static List<String> renderDebug = new ArrayList<>();
     public static List<String> tickDebug = new ArrayList<>();
 
@@ -29,6 +56,95 @@ public class BCProfiler {
         MinecraftForge.EVENT_BUS.register(new BCProfiler());
     }
 
+    /**
+     * Clears all recorded timings. Each thread clears its own timings the next time it starts a section.
+     */
+    public static void reset() {
+        RENDER.resetCount++;
+        TICK.resetCount++;
+    }
+
+    public static boolean isCapturing() {
+        return capture;
+    }
+
+    /**
+     * Starts recording a trace of every section start and stop. Also enables the profiler.
+     * The trace buffer for every existing thread is allocated here (threads that start profiling while capturing allocate theirs on creation)
+     * so recording never allocates. Events recorded by a thread before its buffer has been allocated are dropped.
+     */
+    public static synchronized void startCapture() {
+        captureStart = System.nanoTime();
+        capture = true;
+        enableProfiler = true;
+        for (ProfilerInstance instance : new ProfilerInstance[]{TICK, RENDER}) {
+            instance.threadProfilers.forEach(ThreadProfiler::allocateTrace);
+        }
+    }
+
+    public static void stopCapture() {
+        capture = false;
+    }
+
+    /**
+     * Copies the trace recorded by every thread (this is the only work done on the calling thread) then writes it to a file
+     * in the "profiler_traces" folder on a separate thread.
+     *
+     * @param speedscope true to write a speedscope file, false to write a Chrome Trace Event file.
+     * @param onComplete called from the export thread with the file or null if the export failed.
+     */
+    public static void exportTrace(boolean speedscope, Consumer<File> onComplete) {
+        List<ProfilerTrace.Snapshot> snapshots = new ArrayList<>();
+        for (ProfilerInstance instance : new ProfilerInstance[]{TICK, RENDER}) {
+            for (ThreadProfiler profiler : instance.threadProfilers) {
+                if (profiler.trace != null) {
+                    ProfilerTrace.Snapshot snapshot = profiler.trace.snapshot(captureStart);
+                    if (snapshot.size() > 0) {
+                        snapshots.add(snapshot);
+                    }
+                }
+            }
+        }
+
+        String[] keyNames = new String[nextKeyID.get()];
+        Arrays.fill(keyNames, "unknown");
+        keys.values().forEach(key -> {
+            if (key.id < keyNames.length) keyNames[key.id] = key.name;
+        });
+
+        Thread thread = new Thread(() -> {
+            File folder = new File(FileHandler.brandon3055Folder, "profiler_traces");
+            File file = new File(folder, "trace_" + new SimpleDateFormat("yyyy-MM-dd_HH.mm.ss").format(new Date()) + (speedscope ? ".speedscope.json" : ".json"));
+            try {
+                if (!folder.exists() && !folder.mkdirs()) {
+                    throw new IOException("Could not create folder " + folder);
+                }
+                if (speedscope) {
+                    ProfilerTrace.writeSpeedscope(snapshots, keyNames, file);
+                }
+                else {
+                    ProfilerTrace.writeChromeTrace(snapshots, keyNames, file);
+                }
+                onComplete.accept(file);
+            }
+            catch (Throwable e) {
+                LogHelperBC.error("Failed to export profiler trace to " + file);
+                e.printStackTrace();
+                onComplete.accept(null);
+            }
+        }, "BrandonsCore Trace Export");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * @return the key for the section with the given name. Keys are cached so this should be called once and the key stored.
+     */
+    public static ProfilerKey key(String name) {
+        ProfilerKey key = keys.get(name);
+        return key != null ? key : keys.computeIfAbsent(name, n -> new ProfilerKey(n, nextKeyID.getAndIncrement()));
+    }
+
     @SubscribeEvent
     public void clientTick(TickEvent.ClientTickEvent event) {
         if (!enableProfiler || event.phase != TickEvent.Phase.END) {
@@ -62,7 +178,7 @@ public class BCProfiler {
 
         int y = 0;
         List<String> debug = new ArrayList<>();
-        debug.add(String.format("BCore Profiler: %smin time%s, %smax time%s, %saverage time%s - (Over " + timingTicks / 20 + " seconds)", GREEN, RESET, RED, RESET, YELLOW, RESET));
+        debug.add(String.format("BCore Profiler: calls, %sp50%s, %sp90%s, %sp99%s, %sp99.9%s per call - (%s)", GREEN, RESET, YELLOW, RESET, GOLD, RESET, RED, RESET, window.getName()));
         debug.add("");
         debug.addAll(tickDebug);
         debug.addAll(renderDebug);
@@ -75,174 +191,274 @@ public class BCProfiler {
         GlStateManager.popMatrix();
     }
 
+    public enum Window {
+        SECOND("Last second"),
+        MINUTE("Last minute"),
+        TOTAL("Since reset");
+
+        private final String name;
+
+        Window(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+
+    /**
+     * A pre registered profiler section. Sections started with the same key under the same parent section share their timings.
+     */
+    public static final class ProfilerKey {
+        public final String name;
+        private final int id;
+
+        private ProfilerKey(String name, int id) {
+            this.name = name;
+            this.id = id;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
 
     public static class ProfilerInstance {
-        private final Map<Thread, BCProfiler> threadProfilers = Collections.synchronizedMap(new HashMap<>());
-        private String mode;
+        private final ThreadLocal<ThreadProfiler> threadProfiler = new ThreadLocal<>();
+        private final List<ThreadProfiler> threadProfilers = new CopyOnWriteArrayList<>();
+        private final String mode;
+        private final LogHistogram merged = new LogHistogram();
+        private volatile int resetCount = 0;
 
         ProfilerInstance(String mode) {
             this.mode = mode;
         }
 
-        public synchronized void start(String name) {
+        public void start(ProfilerKey key) {
             if (!enableProfiler) return;
-            Thread t = Thread.currentThread();
-            threadProfilers.computeIfAbsent(t, thread -> new BCProfiler(thread.getName(), mode)).startNode(name);
+            ThreadProfiler profiler = threadProfiler.get();
+            if (profiler == null) {
+                profiler = new ThreadProfiler(Thread.currentThread(), mode);
+                threadProfiler.set(profiler);
+                threadProfilers.add(profiler);
+            }
+            profiler.start(key, resetCount);
         }
 
-        public synchronized void stop() {
+        /**
+         * Prefer {@link #start(ProfilerKey)} with a stored key. This has to look up the key every call.
+         */
+        public void start(String name) {
             if (!enableProfiler) return;
-            Thread t = Thread.currentThread();
-            BCProfiler p = threadProfilers.get(t);
-            if (p != null) {
-                p.stopNode();
+            start(key(name));
+        }
+
+        /**
+         * This is not skipped when the profiler is disabled so a section started before the profiler was disabled is still closed.
+         */
+        public void stop() {
+            ThreadProfiler profiler = threadProfiler.get();
+            if (profiler != null) {
+                profiler.stop();
             }
         }
 
         private void update() {
-            synchronized (threadProfilers) {
-                threadProfilers.entrySet().removeIf(e -> !e.getKey().isAlive());
-                threadProfilers.forEach((t, p) -> p.update());
-            }
+            threadProfilers.removeIf(p -> !p.thread.isAlive());
         }
 
         private void dumpDebug(List<String> list) {
-            synchronized (threadProfilers) {
-                for (BCProfiler p: threadProfilers.values()) {
-                    p.dumpTimigs(list);
-                }
+            long second = Math.floorDiv(System.nanoTime(), 1000000000L);
+            for (ThreadProfiler p: threadProfilers) {
+                p.dumpTimings(list, merged, second);
             }
         }
     }
 
     //Profiler code
 
-    private String thread;
-    private Map<String, PNode> nodes = new HashMap<>();
-    private Map<String, long[]> timings = new HashMap<>();
-    private PNode rootNode;
-    private String mode;
-    private PNode activeNode;
-    private int timingIndex = 0;
-    private int timingTicks = 100;
-
-    private BCProfiler() {}
-
-    private BCProfiler(String thread, String mode) {
-        this.thread = thread;
-        this.rootNode = new PNode(thread, this, null);
-        this.mode = mode;
-        activeNode = rootNode;
-    }
+    /**
+     * Only ever modified by the thread that owns it. Other threads only read the histograms.
+     */
+    private static class ThreadProfiler {
+        private final Thread thread;
+        private final String mode;
+        private final PNode rootNode;
+        private PNode[] stack = new PNode[16];
+        private long[] startTimes = new long[16];
+        private int depth = 0;
+        private int resetCount = 0;
+        private volatile ProfilerTrace trace = null;
+
+        private ThreadProfiler(Thread thread, String mode) {
+            this.thread = thread;
+            this.mode = mode;
+            this.rootNode = new PNode(null);
+            this.stack[0] = rootNode;
+            if (capture) {
+                allocateTrace();
+            }
+        }
 
-    private void dumpTimigs(List<String> list) {
-        rootNode.dumpTimings(list, "");
-    }
+        private void allocateTrace() {
+            if (trace == null) {
+                trace = new ProfilerTrace(thread.getName() + " (" + mode + ")");
+            }
+        }
 
-    private void startNode(String name) {
-        String nodeName = (activeNode == null ? "" : activeNode.name + ".") + name;
-        PNode node = nodes.computeIfAbsent(nodeName, s -> new PNode(s, this, activeNode));
-        activeNode = node;
-        node.start();
-    }
+        private void start(ProfilerKey key, int resetCount) {
+            if (resetCount != this.resetCount) {
+                rootNode.reset();
+                this.resetCount = resetCount;
+            }
 
-    private void stopNode() {
-        if (activeNode != null) {
-            activeNode.stop();
-            activeNode = activeNode.parent;
-        }
-    }
+            if (depth + 1 == stack.length) {
+                stack = Arrays.copyOf(stack, stack.length * 2);
+                startTimes = Arrays.copyOf(startTimes, startTimes.length * 2);
+            }
 
-    private void update() {
-        timingIndex++;
-        if (timingIndex == timingTicks) {
-            timingIndex = 0;
+            stack[depth + 1] = stack[depth].getChild(key);
+            depth++;
+            startTimes[depth] = System.nanoTime();
+            if (capture) {
+                trace(key.id, startTimes[depth]);
+            }
         }
 
-        for (long[] times: timings.values()) {
-            times[timingIndex] = 0;
+        private void stop() {
+            if (depth > 0) {
+                long now = System.nanoTime();
+                stack[depth].record(now, now - startTimes[depth]);
+                if (capture) {
+                    trace(~stack[depth].key.id, now);
+                }
+                depth--;
+            }
         }
 
-        rootNode.update();
-    }
+        private void trace(int event, long time) {
+            ProfilerTrace trace = this.trace;
+            if (trace != null) {
+                trace.add(event, time);
+            }
+        }
 
-    private void addTime(String node, long time) {
-        long[] times = timings.computeIfAbsent(node, s -> new long[timingTicks]);
-        times[timingIndex] += time;
+        private void dumpTimings(List<String> list, LogHistogram merged, long second) {
+            list.add(thread.getName() + ": " + mode);
+            for (PNode child : rootNode.children) {
+                child.dumpTimings(list, "  ", merged, second);
+            }
+        }
     }
 
     private static class PNode {
-        private String name;
-        private BCProfiler profiler;
-        private PNode parent;
-        private List<PNode> children = new ArrayList<>();
-        private long startTime = -1;
-        private boolean isDead = false;
-
-        public PNode(String name, BCProfiler profiler, PNode parent) {
-            this.name = name;
-            this.profiler = profiler;
-            this.parent = parent;
-            if (parent != null) {
-                parent.children.add(this);
+        private final ProfilerKey key;
+        private final LogHistogram total = new LogHistogram();
+        private final LogHistogram[] seconds = {new LogHistogram(), new LogHistogram()};
+        private final long[] secondIDs = {NONE, NONE};
+        private final LogHistogram[] minuteSlots = new LogHistogram[MINUTE_SLOTS];
+        private final long[] minuteSlotIDs = new long[MINUTE_SLOTS];
+        private PNode[] childByKey = new PNode[8];
+        private volatile PNode[] children = new PNode[0];
+
+        private PNode(ProfilerKey key) {
+            this.key = key;
+            for (int i = 0; i < MINUTE_SLOTS; i++) {
+                minuteSlots[i] = new LogHistogram();
+                minuteSlotIDs[i] = NONE;
             }
         }
 
-        private void start() {
-            startTime = System.nanoTime();
+        private PNode getChild(ProfilerKey key) {
+            if (key.id >= childByKey.length) {
+                childByKey = Arrays.copyOf(childByKey, Math.max(key.id + 1, childByKey.length * 2));
+            }
+            PNode child = childByKey[key.id];
+            if (child == null) {
+                child = childByKey[key.id] = new PNode(key);
+                PNode[] newChildren = Arrays.copyOf(children, children.length + 1);
+                newChildren[children.length] = child;
+                children = newChildren;
+            }
+            return child;
         }
 
-        private void stop() {
-            profiler.addTime(name, System.nanoTime() - startTime);
-        }
+        /**
+         * Records one call. Histograms are reused by clearing them when they are first written in a new second or minute slot.
+         */
+        private void record(long now, long time) {
+            int bucket = LogHistogram.bucket(time);
+            long second = Math.floorDiv(now, 1000000000L);
+            int index = (int) (second & 1);
+            if (secondIDs[index] != second) {
+                seconds[index].clear();
+                secondIDs[index] = second;
+            }
+            seconds[index].recordBucket(bucket, time);
 
-        private void update() {
-            children.forEach(PNode::update);
-            children.removeIf(PNode::checkDead);
+            long slotID = Math.floorDiv(second, MINUTE_SLOT_SECONDS);
+            index = (int) Math.floorMod(slotID, MINUTE_SLOTS);
+            if (minuteSlotIDs[index] != slotID) {
+                minuteSlots[index].clear();
+                minuteSlotIDs[index] = slotID;
+            }
+            minuteSlots[index].recordBucket(bucket, time);
+            total.recordBucket(bucket, time);
         }
 
-        private boolean checkDead() {
-            if (isDead) {
-                profiler.nodes.remove(name);
+        private void reset() {
+            total.clear();
+            Arrays.fill(secondIDs, NONE);
+            Arrays.fill(minuteSlotIDs, NONE);
+            for (PNode child : children) {
+                child.reset();
             }
-            return isDead;
         }
 
-        private void dumpTimings(List<String> list, String inset) {
-            long[] times = profiler.timings.get(name);
-
-            if (times == null) {
-                list.add(inset + name + ": " + profiler.mode);
+        /**
+         * Merges the histograms for the current {@link #window} into the given histogram.
+         */
+        private void merge(LogHistogram merged, long second) {
+            merged.clear();
+            switch (window) {
+                case SECOND:
+                    int index = (int) ((second - 1) & 1);
+                    if (secondIDs[index] == second - 1) {
+                        merged.add(seconds[index]);
+                    }
+                    break;
+                case MINUTE:
+                    long slotID = Math.floorDiv(second, MINUTE_SLOT_SECONDS);
+                    for (int i = 0; i < MINUTE_SLOTS; i++) {
+                        if (minuteSlotIDs[i] != NONE && minuteSlotIDs[i] > slotID - MINUTE_SLOTS) {
+                            merged.add(minuteSlots[i]);
+                        }
+                    }
+                    break;
+                case TOTAL:
+                    merged.add(total);
+                    break;
             }
-            else {
-                long min = Long.MAX_VALUE;
-                long max = 0;
-                long average = 0;
-                for (long time: times) {
-                    if (time < min && time > 0) min = time;
-                    if (time > max) max = time;
-                    average += time;
-                }
-                if (min == Long.MAX_VALUE) {
-                    min = 0;
-                }
+        }
 
-                isDead = average == 0;
+        private void dumpTimings(List<String> list, String inset, LogHistogram merged, long second) {
+            merge(merged, second);
 
-                average /= times.length;
-                list.add(inset + name.replace(parent.name + ".", "") + String.format(": (%s, %s, %s)", GREEN + ((min / 1000D) + "us") + RESET, RED + ((max / 1000D) + "us") + RESET, YELLOW + ((average / 1000D) + "us") + RESET));
+            //Nothing has been recorded for this section in the current window.
+            if (merged.getCount() == 0) {
+                return;
             }
-            children.forEach(pNode -> pNode.dumpTimings(list, inset + "  "));
-        }
 
-        @Override
-        public int hashCode() {
-            return name.hashCode();
+            list.add(inset + key.name + String.format(": %s, (%s, %s, %s, %s)", Utils.addCommas(merged.getCount()), GREEN + format(merged.getValueAtPercentile(50)) + RESET, YELLOW + format(merged.getValueAtPercentile(90)) + RESET, GOLD + format(merged.getValueAtPercentile(99)) + RESET, RED + format(merged.getValueAtPercentile(99.9)) + RESET));
+            for (PNode child : children) {
+                child.dumpTimings(list, inset + "  ", merged, second);
+            }
         }
 
-        @Override
-        public boolean equals(Object obj) {
-            return obj instanceof PNode && ((PNode) obj).name.equals(name);
+        private static String format(long nanos) {
+            return (nanos / 1000D) + "us";
         }
     }
 
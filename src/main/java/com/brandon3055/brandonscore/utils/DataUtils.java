@@ -1,5 +1,7 @@
 package com.brandon3055.brandonscore.utils;
 
+import codechicken.lib.data.MCDataInput;
+import codechicken.lib.data.MCDataOutput;
 import codechicken.lib.util.ArrayUtils;
 import net.minecraft.util.text.TextFormatting;
 
@@ -287,4 +289,42 @@ public class DataUtils {
     }
 
     //endregion
+
+    //region ZigZag
+
+    //MCDataOutput only has an int version of writeVarInt so the zigzag helpers use their own long version.
+    private static void writeVarLong(MCDataOutput output, long value) {
+        while ((value & ~0x7FL) != 0) {
+            output.writeByte((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        output.writeByte((byte) value);
+    }
+
+    private static long readVarLong(MCDataInput input) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = input.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        }
+        while ((b & 0x80) != 0 && shift < 64);
+        return value;
+    }
+
+    /**
+     * Writes a signed long using zigzag encoding so that small negative values are also small on the wire.
+     */
+    public static void writeZigZag(MCDataOutput output, long value) {
+        writeVarLong(output, (value << 1) ^ (value >> 63));
+    }
+
+    public static long readZigZag(MCDataInput input) {
+        long value = readVarLong(input);
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    //endregion
 }
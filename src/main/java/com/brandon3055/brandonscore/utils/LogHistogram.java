@@ -0,0 +1,106 @@
+package com.brandon3055.brandonscore.utils;
+
+import java.util.Arrays;
+
+/**
+ * A fixed size log-linear histogram for recording durations in nanoseconds (similar to HdrHistogram).
+ * <p>
+ * Each power of 2 is split into 8 linear sub buckets so a value is reported to within 12.5% of its actual value.
+ * Values up to 2^34ns (about 17 seconds) are tracked, larger values are counted in the last bucket.
+ * Recording never allocates. This class is not thread safe, a histogram should only be written by one thread.
+ */
+public class LogHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 34;
+    public static final int BUCKET_COUNT = SUB_BUCKETS + (MAX_EXPONENT - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final long[] counts = new long[BUCKET_COUNT];
+    private long count = 0;
+    private long max = 0;
+
+    public void record(long value) {
+        recordBucket(bucket(value), value);
+    }
+
+    /**
+     * Records a value for which the bucket has already been calculated. Allows the same value to be recorded into multiple histograms
+     * without calculating the bucket each time.
+     */
+    public void recordBucket(int bucket, long value) {
+        counts[bucket]++;
+        count++;
+        if (value > max) {
+            max = value;
+        }
+    }
+
+    /**
+     * Adds all values recorded by the given histogram to this histogram.
+     */
+    public void add(LogHistogram other) {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        max = Math.max(max, other.max);
+    }
+
+    public void clear() {
+        Arrays.fill(counts, 0);
+        count = 0;
+        max = 0;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * @param percentile the percentile (0 to 100)
+     * @return the highest value in the bucket containing the given percentile or 0 if nothing has been recorded.
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(percentile / 100D * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts[i];
+            if (seen >= target) {
+                return i == BUCKET_COUNT - 1 ? max : Math.min(lowestValue(i + 1) - 1, max);
+            }
+        }
+        return max;
+    }
+
+    public static int bucket(long value) {
+        if (value < SUB_BUCKETS) {
+            return value < 0 ? 0 : (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        if (exponent >= MAX_EXPONENT) {
+            return BUCKET_COUNT - 1;
+        }
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return SUB_BUCKETS + (exponent - SUB_BUCKET_BITS) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * @return the lowest value that is counted in the given bucket.
+     */
+    public static long lowestValue(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = (bucket - SUB_BUCKETS) / SUB_BUCKETS + SUB_BUCKET_BITS;
+        int subBucket = (bucket - SUB_BUCKETS) % SUB_BUCKETS;
+        return (long) (SUB_BUCKETS + subBucket) << (exponent - SUB_BUCKET_BITS);
+    }
+}
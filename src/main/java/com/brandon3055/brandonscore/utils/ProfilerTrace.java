@@ -0,0 +1,198 @@
+package com.brandon3055.brandonscore.utils;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A fixed size ring buffer of section start and stop events recorded by a single {@link BCProfiler} thread while trace capture is enabled.
+ * When the buffer is full the oldest events are overwritten.
+ * <p>
+ * Exporting takes a {@link Snapshot} (a copy of the buffer) on the calling thread which only takes a fraction of a millisecond.
+ * The snapshots can then be written to a Chrome Trace Event (chrome://tracing, Perfetto) or speedscope file on another thread.
+ */
+public class ProfilerTrace {
+
+    public static final int CAPACITY = 1 << 16;
+    private static final int MASK = CAPACITY - 1;
+
+    private final String name;
+    private final long[] times = new long[CAPACITY];
+    private final int[] events = new int[CAPACITY];
+    private volatile long count = 0;
+
+    public ProfilerTrace(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Must only be called by the owning thread.
+     *
+     * @param event the section key id for a start event or the bitwise complement of the key id (~id) for a stop event.
+     */
+    public void add(int event, long time) {
+        int index = (int) (count & MASK);
+        times[index] = time;
+        events[index] = event;
+        count = count + 1;
+    }
+
+    /**
+     * Copies the events recorded since the given time. Can be called from any thread.
+     * Events that are overwritten by the owning thread while the copy is in progress are discarded.
+     */
+    public Snapshot snapshot(long since) {
+        long end = count;
+        long[] timesCopy = times.clone();
+        int[] eventsCopy = events.clone();
+        //The slot for the next event may already be partially written so it is also discarded.
+        long start = Math.max(0, count + 1 - CAPACITY);
+
+        int size = (int) Math.max(0, end - start);
+        long[] orderedTimes = new long[size];
+        int[] orderedEvents = new int[size];
+        int added = 0;
+        for (long i = start; i < end; i++) {
+            int index = (int) (i & MASK);
+            if (timesCopy[index] >= since) {
+                orderedTimes[added] = timesCopy[index];
+                orderedEvents[added] = eventsCopy[index];
+                added++;
+            }
+        }
+        return new Snapshot(name, orderedTimes, orderedEvents, added);
+    }
+
+    public static class Snapshot {
+        public final String name;
+        private final long[] times;
+        private final int[] events;
+        private final int size;
+
+        private Snapshot(String name, long[] times, int[] events, int size) {
+            this.name = name;
+            this.times = times;
+            this.events = events;
+            this.size = size;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Calls the consumer for every event in order. Stop events without a matching start (the start was overwritten or happened before
+         * capture began) are skipped and sections that are still open at the end are closed at the time of the last event.
+         */
+        private void forEachBalanced(EventConsumer consumer) throws IOException {
+            int[] stack = new int[16];
+            int depth = 0;
+            for (int i = 0; i < size; i++) {
+                int event = events[i];
+                if (event >= 0) {
+                    if (depth == stack.length) {
+                        stack = Arrays.copyOf(stack, depth * 2);
+                    }
+                    stack[depth++] = event;
+                    consumer.accept(true, event, times[i]);
+                }
+                else if (depth > 0) {
+                    depth--;
+                    consumer.accept(false, stack[depth], times[i]);
+                }
+            }
+            long last = size > 0 ? times[size - 1] : 0;
+            while (depth > 0) {
+                consumer.accept(false, stack[--depth], last);
+            }
+        }
+    }
+
+    private interface EventConsumer {
+        void accept(boolean open, int key, long time) throws IOException;
+    }
+
+    /**
+     * Writes the snapshots to a Chrome Trace Event format json file. Each snapshot is written as its own thread.
+     *
+     * @param keyNames section names indexed by key id.
+     */
+    public static void writeChromeTrace(List<Snapshot> snapshots, String[] keyNames, File file) throws IOException {
+        long base = getBaseTime(snapshots);
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8))) {
+            writer.write("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[");
+            boolean[] first = {true};
+            for (int tid = 0; tid < snapshots.size(); tid++) {
+                Snapshot snapshot = snapshots.get(tid);
+                String prefix = ",\"pid\":1,\"tid\":" + tid;
+                writer.write((first[0] ? "\n" : ",\n") + "{\"name\":\"thread_name\",\"ph\":\"M\"" + prefix + ",\"args\":{\"name\":" + quote(snapshot.name) + "}}");
+                first[0] = false;
+                snapshot.forEachBalanced((open, key, time) -> {
+                    writer.write(",\n{\"name\":" + quote(keyNames[key]) + ",\"ph\":\"" + (open ? "B" : "E") + "\"" + prefix + ",\"ts\":" + ((time - base) / 1000D) + "}");
+                });
+            }
+            writer.write("\n]}\n");
+        }
+    }
+
+    /**
+     * Writes the snapshots to a speedscope (https://www.speedscope.app) json file. Each snapshot is written as its own evented profile.
+     *
+     * @param keyNames section names indexed by key id.
+     */
+    public static void writeSpeedscope(List<Snapshot> snapshots, String[] keyNames, File file) throws IOException {
+        long base = getBaseTime(snapshots);
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8))) {
+            writer.write("{\"$schema\":\"https://www.speedscope.app/file-format-schema.json\",\"name\":\"BCore Profiler\",\"exporter\":\"BrandonsCore\",\"activeProfileIndex\":0,");
+            writer.write("\"shared\":{\"frames\":[");
+            for (int i = 0; i < keyNames.length; i++) {
+                writer.write((i > 0 ? "," : "") + "{\"name\":" + quote(keyNames[i]) + "}");
+            }
+            writer.write("]},\"profiles\":[");
+            for (int i = 0; i < snapshots.size(); i++) {
+                Snapshot snapshot = snapshots.get(i);
+                long end = snapshot.size > 0 ? snapshot.times[snapshot.size - 1] - base : 0;
+                writer.write((i > 0 ? ",\n" : "\n") + "{\"type\":\"evented\",\"name\":" + quote(snapshot.name) + ",\"unit\":\"nanoseconds\",\"startValue\":0,\"endValue\":" + end + ",\"events\":[");
+                boolean[] first = {true};
+                snapshot.forEachBalanced((open, key, time) -> {
+                    writer.write((first[0] ? "" : ",") + "{\"type\":\"" + (open ? "O" : "C") + "\",\"frame\":" + key + ",\"at\":" + (time - base) + "}");
+                    first[0] = false;
+                });
+                writer.write("]}");
+            }
+            writer.write("\n]}\n");
+        }
+    }
+
+    private static long getBaseTime(List<Snapshot> snapshots) {
+        long base = Long.MAX_VALUE;
+        for (Snapshot snapshot : snapshots) {
+            if (snapshot.size > 0) {
+                base = Math.min(base, snapshot.times[0]);
+            }
+        }
+        return base == Long.MAX_VALUE ? 0 : base;
+    }
+
+    private static String quote(String value) {
+        StringBuilder builder = new StringBuilder(value.length() + 2).append('"');
+        for (char c : value.toCharArray()) {
+            if (c == '"' || c == '\\') {
+                builder.append('\\').append(c);
+            }
+            else if (c < 0x20) {
+                builder.append(String.format("\\u%04x", (int) c));
+            }
+            else {
+                builder.append(c);
+            }
+        }
+        return builder.append('"').toString();
+    }
+}
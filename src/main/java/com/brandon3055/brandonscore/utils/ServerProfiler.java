@@ -0,0 +1,195 @@
+package com.brandon3055.brandonscore.utils;
+
+import net.minecraft.tileentity.TileEntity;
+import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+import net.minecraftforge.fml.common.gameevent.TickEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Server side counterpart to {@link BCProfiler}. Attributes the time spent in Brandon's Core code on the server thread to the tile class,
+ * dimension and chunk responsible for it so the machines that are costing the most tick time can be found.
+ * Profiling is started for a fixed number of ticks via "/bcore_util profile &lt;seconds&gt;" and is completely inactive otherwise.
+ * <p>
+ * Usage: {@code long start = ServerProfiler.start();} before the work and {@code ServerProfiler.recordTile(tile, start);} after it.
+ * {@link #start()} returns 0 while profiling is inactive in which case the record methods return immediately.
+ * {@link com.brandon3055.brandonscore.blocks.TileBCBase#update()} is recorded automatically. Tiles that do significant work in their own
+ * update method can record it the same way so it is included in their total.
+ */
+public class ServerProfiler {
+
+    public static final String TILES = "tiles";
+    public static final String DIMENSIONS = "dimensions";
+    public static final String CHUNKS = "chunks";
+    public static final String PROCESSES = "processes";
+    public static final String PACKETS = "packets";
+    public static final String SECTIONS = "sections";
+
+    private static final Map<Class<?>, Counter> tiles = new ConcurrentHashMap<>();
+    private static final Map<Integer, Counter> dimensions = new ConcurrentHashMap<>();
+    private static final Map<Integer, Map<Long, Counter>> chunks = new ConcurrentHashMap<>();
+    private static final Map<Class<?>, Counter> processes = new ConcurrentHashMap<>();
+    private static final Map<Object, Counter> packets = new ConcurrentHashMap<>();
+    private static final Map<String, Counter> sections = new ConcurrentHashMap<>();
+    private static volatile boolean active = false;
+    private static int ticksRemaining = 0;
+    private static int ticksRecorded = 0;
+    private static Runnable onComplete = null;
+
+    public static boolean isActive() {
+        return active;
+    }
+
+    /**
+     * Clears the previous results and starts profiling.
+     *
+     * @param ticks      the number of server ticks to profile for.
+     * @param onComplete called on the server thread when profiling finishes.
+     */
+    public static void begin(int ticks, Runnable onComplete) {
+        tiles.clear();
+        dimensions.clear();
+        chunks.clear();
+        processes.clear();
+        packets.clear();
+        sections.clear();
+        ticksRemaining = ticks;
+        ticksRecorded = 0;
+        ServerProfiler.onComplete = onComplete;
+        active = true;
+    }
+
+    /**
+     * @return the number of ticks recorded by the current or last profiling run.
+     */
+    public static int getTicksRecorded() {
+        return ticksRecorded;
+    }
+
+    /**
+     * @return the start time to pass to one of the record methods or 0 if profiling is not active.
+     */
+    public static long start() {
+        return active ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Records the time since start against the class of the given tile as well as the dimension and chunk it is in.
+     */
+    public static void recordTile(TileEntity tile, long start) {
+        if (start == 0) {
+            return;
+        }
+        long time = System.nanoTime() - start;
+        int dimension = tile.getWorld().provider.getDimension();
+        long chunk = ((long) (tile.getPos().getX() >> 4) & 0xFFFFFFFFL) | ((long) (tile.getPos().getZ() >> 4) & 0xFFFFFFFFL) << 32;
+        tiles.computeIfAbsent(tile.getClass(), c -> new Counter()).add(time);
+        dimensions.computeIfAbsent(dimension, d -> new Counter()).add(time);
+        chunks.computeIfAbsent(dimension, d -> new ConcurrentHashMap<>()).computeIfAbsent(chunk, c -> new Counter()).add(time);
+    }
+
+    public static void recordProcess(Object process, long start) {
+        if (start != 0) {
+            processes.computeIfAbsent(process.getClass(), c -> new Counter()).add(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * @param type a packet id or message class.
+     */
+    public static void recordPacket(Object type, long start) {
+        if (start != 0) {
+            packets.computeIfAbsent(type, t -> new Counter()).add(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * @param section should be a constant. Used for work that is not specific to a single tile.
+     */
+    public static void recordSection(String section, long start) {
+        if (start != 0) {
+            sections.computeIfAbsent(section, s -> new Counter()).add(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * @return the entries in the given table sorted by time (largest first).
+     */
+    public static List<Entry> getTable(String table) {
+        List<Entry> entries = new ArrayList<>();
+        switch (table) {
+            case TILES:
+                tiles.forEach((c, counter) -> entries.add(counter.toEntry(c.getName())));
+                break;
+            case DIMENSIONS:
+                dimensions.forEach((d, counter) -> entries.add(counter.toEntry("DIM " + d)));
+                break;
+            case CHUNKS:
+                chunks.forEach((d, map) -> map.forEach((c, counter) -> entries.add(counter.toEntry("DIM " + d + " chunk " + (int) (c & 0xFFFFFFFFL) + ", " + (int) (c >>> 32)))));
+                break;
+            case PROCESSES:
+                processes.forEach((c, counter) -> entries.add(counter.toEntry(c.getName())));
+                break;
+            case PACKETS:
+                packets.forEach((t, counter) -> entries.add(counter.toEntry(t instanceof Class ? ((Class) t).getSimpleName() : "BCPCChannel/" + t)));
+                break;
+            default:
+                sections.forEach((s, counter) -> entries.add(counter.toEntry(s)));
+        }
+        entries.sort((a, b) -> Long.compare(b.nanos, a.nanos));
+        return entries;
+    }
+
+    @SubscribeEvent
+    public void serverTick(TickEvent.ServerTickEvent event) {
+        if (event.phase != TickEvent.Phase.END || !active) {
+            return;
+        }
+        ticksRecorded++;
+        if (--ticksRemaining <= 0) {
+            active = false;
+            if (onComplete != null) {
+                onComplete.run();
+                onComplete = null;
+            }
+        }
+    }
+
+    /**
+     * Almost everything is recorded on the server thread so the lock is uncontended.
+     */
+    private static class Counter {
+        private final LogHistogram histogram = new LogHistogram();
+        private long nanos = 0;
+
+        private synchronized void add(long time) {
+            histogram.record(time);
+            nanos += time;
+        }
+
+        private synchronized Entry toEntry(String name) {
+            return new Entry(name, histogram.getCount(), nanos, histogram.getValueAtPercentile(50), histogram.getValueAtPercentile(99), histogram.getValueAtPercentile(99.9));
+        }
+    }
+
+    public static class Entry {
+        public final String name;
+        public final long calls;
+        public final long nanos;
+        public final long p50;
+        public final long p99;
+        public final long p999;
+
+        private Entry(String name, long calls, long nanos, long p50, long p99, long p999) {
+            this.name = name;
+            this.calls = calls;
+            this.nanos = nanos;
+            this.p50 = p50;
+            this.p99 = p99;
+            this.p999 = p999;
+        }
+    }
+}
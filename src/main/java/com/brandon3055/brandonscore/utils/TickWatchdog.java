@@ -0,0 +1,170 @@
+package com.brandon3055.brandonscore.utils;
+
+import com.brandon3055.brandonscore.BCConfig;
+import com.brandon3055.brandonscore.handlers.FileHandler;
+import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+import net.minecraftforge.fml.common.gameevent.TickEvent;
+import org.apache.logging.log4j.Level;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Records what the server thread is doing during slow ticks. See the "tickWatchdog..." config options.
+ * <p>
+ * The server tick start and end are published from the server thread. A separate watchdog thread polls them and once the current tick has
+ * taken longer than the threshold it samples the server thread's stack every few milliseconds until the tick ends.
+ * The samples are aggregated into a collapsed stack file (one "frame;frame;frame count" line per unique stack, root first) which can be
+ * loaded by flame graph tools such as flamegraph.pl or speedscope. Only the most recent spikes are kept in the "tick_spikes" folder.
+ */
+public class TickWatchdog {
+
+    private static final long MAX_SPIKE_NANOS = 30000000000L;
+    private static final String PREFIX = "spike_";
+    private static final String EXTENSION = ".txt";
+
+    private static volatile Thread serverThread = null;
+    private static volatile long tickStart = 0;
+    private static volatile long tickCount = 0;
+    private static volatile long lastTickEnd = 0;
+    private static Thread watchdog = null;
+
+    public static File getSpikeFolder() {
+        return new File(FileHandler.brandon3055Folder, "tick_spikes");
+    }
+
+    /**
+     * @return the saved spike files, newest first.
+     */
+    public static List<File> getSpikeFiles() {
+        File[] files = getSpikeFolder().listFiles((dir, name) -> name.startsWith(PREFIX) && name.endsWith(EXTENSION));
+        List<File> list = files == null ? new ArrayList<>() : new ArrayList<>(Arrays.asList(files));
+        list.sort(Comparator.comparingLong(File::lastModified).reversed());
+        return list;
+    }
+
+    @SubscribeEvent
+    public void serverTick(TickEvent.ServerTickEvent event) {
+        if (event.phase == TickEvent.Phase.START) {
+            if (BCConfig.tickWatchdogThreshold <= 0) {
+                return;
+            }
+            serverThread = Thread.currentThread();
+            tickCount++;
+            tickStart = System.nanoTime();
+            ensureRunning();
+        }
+        else if (tickStart != 0) {
+            lastTickEnd = System.nanoTime();
+            tickStart = 0;
+        }
+    }
+
+    private static synchronized void ensureRunning() {
+        if (watchdog == null) {
+            watchdog = new Thread(TickWatchdog::run, "BrandonsCore Tick Watchdog");
+            watchdog.setDaemon(true);
+            watchdog.start();
+        }
+    }
+
+    private static void run() {
+        Map<String, Integer> samples = new HashMap<>();
+        long spikeTick = -1;
+        long spikeStart = 0;
+        boolean spikeSaved = false;
+
+        while (true) {
+            try {
+                Thread.sleep(Math.max(1, BCConfig.tickWatchdogSampleInterval));
+                long start = tickStart;
+                long tick = tickCount;
+                long now = System.nanoTime();
+                Thread thread = serverThread;
+
+                //The slow tick has finished (or the server has stopped)
+                if (spikeTick != -1 && (start == 0 || tick != spikeTick || thread == null || !thread.isAlive())) {
+                    if (!spikeSaved) {
+                        saveSpike(samples, spikeStart, lastTickEnd > spikeStart ? lastTickEnd - spikeStart : now - spikeStart, false);
+                    }
+                    samples.clear();
+                    spikeTick = -1;
+                    spikeSaved = false;
+                }
+
+                long threshold = BCConfig.tickWatchdogThreshold * 1000000L;
+                if (threshold <= 0 || start == 0 || now - start < threshold || thread == null || spikeSaved) {
+                    continue;
+                }
+
+                if (spikeTick == -1) {
+                    spikeTick = tick;
+                    spikeStart = start;
+                }
+                samples.merge(collapse(thread.getStackTrace()), 1, Integer::sum);
+
+                //The server is probably stuck. Save what we have rather than waiting for a tick that may never end.
+                if (now - spikeStart > MAX_SPIKE_NANOS) {
+                    saveSpike(samples, spikeStart, now - spikeStart, true);
+                    spikeSaved = true;
+                }
+            }
+            catch (InterruptedException e) {
+                return;
+            }
+            catch (Throwable e) {
+                LogHelperBC.log(Level.ERROR, "An error occurred in the tick watchdog", e);
+            }
+        }
+    }
+
+    private static String collapse(StackTraceElement[] trace) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = trace.length - 1; i >= 0; i--) {
+            builder.append(trace[i].getClassName()).append('.').append(trace[i].getMethodName());
+            if (i > 0) {
+                builder.append(';');
+            }
+        }
+        return builder.toString();
+    }
+
+    private static void saveSpike(Map<String, Integer> samples, long spikeStart, long duration, boolean incomplete) {
+        if (samples.isEmpty()) {
+            return;
+        }
+        File folder = getSpikeFolder();
+        String time = new SimpleDateFormat("yyyy-MM-dd_HH.mm.ss").format(new Date(System.currentTimeMillis() - (System.nanoTime() - spikeStart) / 1000000L));
+        File file = new File(folder, PREFIX + time + "_" + (duration / 1000000L) + "ms" + EXTENSION);
+        try {
+            if (!folder.exists() && !folder.mkdirs()) {
+                throw new IOException("Could not create folder " + folder);
+            }
+            try (PrintWriter writer = new PrintWriter(file, "UTF-8")) {
+                samples.forEach((stack, count) -> writer.println(stack + " " + count));
+            }
+        }
+        catch (IOException e) {
+            LogHelperBC.log(Level.ERROR, "Failed to save tick spike samples to " + file, e);
+            return;
+        }
+
+        LogHelperBC.warn("Server tick took " + (duration / 1000000L) + "ms" + (incomplete ? " and is still running" : "") + ". Stack samples saved to " + file);
+
+        List<File> files = getSpikeFiles();
+        for (int i = Math.max(1, BCConfig.tickWatchdogMaxSpikes); i < files.size(); i++) {
+            if (!files.get(i).delete()) {
+                LogHelperBC.warn("Failed to delete old tick spike file " + files.get(i));
+            }
+        }
+    }
+}